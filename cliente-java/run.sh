@@ -24,7 +24,7 @@ if [ "$1" == "--gui" ]; then
         -e DISPLAY=$DISPLAY \
         -v /tmp/.X11-unix:/tmp/.X11-unix \
         -v $(pwd)/config.json:/app/config.json \
-        cliente-java java -jar app.jar --gui
+        cliente-java java -XX:SharedArchiveFile=app.jsa -jar app.jar --gui
 else
     docker run -it --rm \
         --network $SHARED_NETWORK \
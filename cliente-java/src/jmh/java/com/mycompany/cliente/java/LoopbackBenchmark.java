@@ -0,0 +1,71 @@
+package com.mycompany.cliente.java;
+
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * Ida y vuelta completa de un registro por el transporte loopback: alta en
+ * la tabla de pendientes, serialización, paso por el simulador de LP2 y LP1
+ * sin latencia ni límite de trabajadores, y lectura de la respuesta. Mide
+ * el coste del cliente por petición sin RabbitMQ ni bases de datos.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class LoopbackBenchmark {
+
+    private TablaPendientes pendientes;
+    private TransporteLoopback transporte;
+    private GeneradorDatos generador;
+
+    /** Cada hilo recorre su parte de la secuencia de usuarios. */
+    @State(Scope.Thread)
+    public static class Usuarios {
+        Supplier<RegistroUsuario> siguiente;
+
+        @Setup
+        public void preparar(LoopbackBenchmark benchmark, ThreadParams hilo) {
+            siguiente = benchmark.generador.secuencia(hilo.getThreadIndex(), hilo.getThreadCount());
+        }
+    }
+
+    @Setup
+    public void preparar() {
+        pendientes = new TablaPendientes(TablaPendientes.ModoIds.COMPACTO, 65536, TimeUnit.SECONDS.toNanos(30));
+        SimuladorBackend.Parametros p = new SimuladorBackend.Parametros();
+        p.latenciaLp2Micros = 0;
+        p.latenciaLp1Micros = 0;
+        p.trabajadoresLp2 = 0;
+        p.trabajadoresLp1 = 0;
+        p.todosLosDniValidos = true;
+        p.correoUnico = false;
+        transporte = new TransporteLoopback(p);
+        transporte.iniciar((id, cuerpo) -> {
+            CompletableFuture<ResultadoRegistro> future = pendientes.completar(id);
+            if (future != null) {
+                future.complete(ResultadoRegistro.desdeBytes(cuerpo));
+            }
+        });
+        GeneradorDatos.Parametros g = new GeneradorDatos.Parametros();
+        g.distribucionDni = GeneradorDatos.DistribucionDni.SECUENCIAL;
+        generador = new GeneradorDatos(g);
+    }
+
+    @TearDown
+    public void cerrar() {
+        transporte.close();
+    }
+
+    @Benchmark
+    public ResultadoRegistro registrar(Usuarios usuarios) throws Exception {
+        CompletableFuture<ResultadoRegistro> future = new CompletableFuture<>();
+        String correlationId = pendientes.registrar(future);
+        transporte.publicar("check", correlationId, CodecMensajes.codificar(usuarios.siguiente.get()));
+        return future.get();
+    }
+}
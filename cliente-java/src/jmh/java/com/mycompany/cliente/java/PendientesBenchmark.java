@@ -0,0 +1,79 @@
+package com.mycompany.cliente.java;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Alta y baja de una respuesta pendiente, con varios hilos a la vez como
+ * ocurre entre los publicadores y el consumidor de respuestas. El mapa con
+ * UUIDs pregenerados es la ruta anterior; la tabla compacta incluye la
+ * generación del id porque forma parte del alta.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+public class PendientesBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Mapa {
+        final Map<String, CompletableFuture<String>> pendingResponses = new ConcurrentHashMap<>();
+
+        /** Peticiones en vuelo que ya ocupan el mapa mientras se mide. */
+        @Param({"0", "10000"})
+        int enVuelo;
+
+        @Setup
+        public void llenar() {
+            for (int i = 0; i < enVuelo; i++) {
+                pendingResponses.put(UUID.randomUUID().toString(), new CompletableFuture<>());
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Tabla {
+        TablaPendientes pendientes;
+
+        @Param({"0", "10000"})
+        int enVuelo;
+
+        @Setup
+        public void llenar() {
+            pendientes = new TablaPendientes(TablaPendientes.ModoIds.COMPACTO, 65536, TimeUnit.SECONDS.toNanos(30));
+            for (int i = 0; i < enVuelo; i++) {
+                pendientes.registrar(new CompletableFuture<>());
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Ids {
+        final String[] ids = new String[1024];
+        int siguiente;
+
+        @Setup
+        public void generar() {
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = UUID.randomUUID().toString();
+            }
+        }
+    }
+
+    @Benchmark
+    public CompletableFuture<String> ponerYQuitar(Mapa mapa, Ids ids) {
+        String id = ids.ids[ids.siguiente++ & (ids.ids.length - 1)];
+        CompletableFuture<String> future = new CompletableFuture<>();
+        mapa.pendingResponses.put(id, future);
+        return mapa.pendingResponses.remove(id);
+    }
+
+    @Benchmark
+    public CompletableFuture<ResultadoRegistro> tablaCompacta(Tabla tabla) {
+        CompletableFuture<ResultadoRegistro> future = new CompletableFuture<>();
+        String id = tabla.pendientes.registrar(future);
+        return tabla.pendientes.completar(id);
+    }
+}
@@ -0,0 +1,130 @@
+package com.mycompany.cliente.java;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.AMQP;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Coste de cada paso que Cliente ejecuta por petición, medido por separado
+ * y sin broker: generar el usuario, serializarlo, crear el correlation id,
+ * construir las propiedades AMQP y leer el estado de la respuesta. Las
+ * variantes con Map y String son la ruta anterior a CodecMensajes y se
+ * mantienen como referencia.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class RutaPeticionBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Supplier<RegistroUsuario> generador = new GeneradorDatos().secuencia(0, 1);
+    private final Supplier<RegistroUsuario> generadorZipf = new GeneradorDatos(parametrosZipf()).secuencia(0, 1);
+    private RegistroUsuario registro;
+    private Map<String, Object> usuario;
+    private String correlationId;
+    private String respuestaExito;
+    private String respuestaError;
+    private byte[] bytesExito;
+    private byte[] bytesError;
+
+    @Setup
+    public void preparar() {
+        registro = generador.get();
+        registro.setAmigos(Arrays.asList("20453629", "12345678"));
+        usuario = new HashMap<>();
+        usuario.put("nombre", registro.getNombre());
+        usuario.put("correo", registro.getCorreo());
+        usuario.put("clave", registro.getClave());
+        usuario.put("dni", registro.getDni());
+        usuario.put("telefono", registro.getTelefono());
+        usuario.put("amigos", registro.getAmigos());
+        correlationId = UUID.randomUUID().toString();
+        respuestaExito = "{\"status\": \"success\", \"message\": \"Usuario Ana Torres guardado correctamente\", "
+            + "\"user_id\": 1532, \"amigos_guardados\": [\"20453629\"], "
+            + "\"timestamp\": \"2024-06-01T12:00:00.000000\", \"correlation_id\": \"" + correlationId + "\"}";
+        respuestaError = "{\"status\":\"error\",\"message\":\"Usuario con DNI 12345678 ya existe\","
+            + "\"timestamp\":\"2024-06-01T12:00:00.000000\",\"correlation_id\":\"" + correlationId + "\"}";
+        bytesExito = respuestaExito.getBytes(StandardCharsets.UTF_8);
+        bytesError = respuestaError.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public RegistroUsuario generarUsuario() {
+        return generador.get();
+    }
+
+    @Benchmark
+    public RegistroUsuario generarUsuarioZipf() {
+        return generadorZipf.get();
+    }
+
+    private static GeneradorDatos.Parametros parametrosZipf() {
+        GeneradorDatos.Parametros p = new GeneradorDatos.Parametros();
+        p.distribucionDni = GeneradorDatos.DistribucionDni.ZIPF;
+        p.poblacion = 10_000_000;
+        return p;
+    }
+
+    /** Lo que hace publicarSolicitud: RegistroUsuario a bytes UTF-8 con el writer precompilado. */
+    @Benchmark
+    public byte[] codificarRegistro() throws Exception {
+        return CodecMensajes.codificar(registro);
+    }
+
+    @Benchmark
+    public byte[] serializarMapa() throws Exception {
+        return objectMapper.writeValueAsBytes(usuario);
+    }
+
+    /** La ruta original: Map, String intermedio y luego getBytes. */
+    @Benchmark
+    public byte[] serializarUsuarioViaString() throws Exception {
+        return objectMapper.writeValueAsString(usuario).getBytes("UTF-8");
+    }
+
+    @Benchmark
+    public String correlationIdUuid() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public AMQP.BasicProperties construirPropiedades() {
+        return new AMQP.BasicProperties
+            .Builder()
+            .correlationId(correlationId)
+            .replyTo("amq.gen-JzTY20BRgKO-HjmUJj0wLg")
+            .build();
+    }
+
+    /** El paso de contabilizar una respuesta en la prueba de carga. */
+    @Benchmark
+    public boolean decodificarEstadoExito() {
+        return ResultadoRegistro.desdeBytes(bytesExito).esExitoso();
+    }
+
+    @Benchmark
+    public String decodificarMensajeError() {
+        ResultadoRegistro resultado = ResultadoRegistro.desdeBytes(bytesError);
+        return resultado.esExitoso() ? null : resultado.getMensaje();
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public boolean leerEstadoRespuestaExito() throws Exception {
+        Map<String, Object> responseMap = objectMapper.readValue(respuestaExito, Map.class);
+        return "success".equals(responseMap.get("status"));
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public Object leerMensajeRespuestaError() throws Exception {
+        Map<String, Object> responseMap = objectMapper.readValue(respuestaError, Map.class);
+        return "success".equals(responseMap.get("status")) ? null : responseMap.get("message");
+    }
+}
@@ -0,0 +1,156 @@
+package com.mycompany.cliente.java;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Caché de consultas de DNI delante de la RPC a LP2.
+ *
+ * Las entradas se expulsan por LRU al superar la capacidad y caducan por
+ * TTL; los DNI inexistentes también se guardan, con su propio TTL (más
+ * corto), para que un DNI inválido repetido no vuelva a viajar a LP2. Los
+ * errores y timeouts no se guardan.
+ *
+ * Si varias búsquedas del mismo DNI coinciden mientras no está en caché,
+ * sólo la primera consulta a LP2 y las demás esperan esa misma respuesta.
+ */
+public class CacheConsultas {
+
+    private static final class Entrada {
+        final ResultadoConsulta resultado;
+        final long expiraNanos;
+
+        Entrada(ResultadoConsulta resultado, long expiraNanos) {
+            this.resultado = resultado;
+            this.expiraNanos = expiraNanos;
+        }
+    }
+
+    private final Function<String, CompletableFuture<ResultadoConsulta>> origen;
+    private final long ttlNanos;
+    private final long ttlNegativoNanos;
+    private final ReentrantLock cerrojo = new ReentrantLock();
+    private final LinkedHashMap<String, Entrada> entradas;
+    private final Map<String, CompletableFuture<ResultadoConsulta>> enCurso = new ConcurrentHashMap<>();
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder compartidas = new LongAdder();
+
+    /**
+     * @param origen consulta real a LP2; se puede sustituir por un
+     *               respondedor en proceso para pruebas sin broker
+     */
+    public CacheConsultas(Function<String, CompletableFuture<ResultadoConsulta>> origen,
+                          int capacidad, long ttlNanos, long ttlNegativoNanos) {
+        this.origen = origen;
+        this.ttlNanos = ttlNanos;
+        this.ttlNegativoNanos = ttlNegativoNanos;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> eldest) {
+                return size() > capacidad;
+            }
+        };
+    }
+
+    public CompletableFuture<ResultadoConsulta> buscar(String dni) {
+        ResultadoConsulta enCache = leer(dni);
+        if (enCache != null) {
+            aciertos.increment();
+            return CompletableFuture.completedFuture(enCache);
+        }
+
+        CompletableFuture<ResultadoConsulta> propia = new CompletableFuture<>();
+        CompletableFuture<ResultadoConsulta> existente = enCurso.putIfAbsent(dni, propia);
+        if (existente != null) {
+            compartidas.increment();
+            // copy() para que cancelar una espera no cancele la de los demás
+            return existente.copy();
+        }
+
+        // Otra consulta pudo terminar entre la lectura y el alta en enCurso
+        enCache = leer(dni);
+        if (enCache != null) {
+            aciertos.increment();
+            enCurso.remove(dni, propia);
+            propia.complete(enCache);
+            return propia.copy();
+        }
+
+        fallos.increment();
+        CompletableFuture<ResultadoConsulta> consulta;
+        try {
+            consulta = origen.apply(dni);
+        } catch (RuntimeException e) {
+            consulta = CompletableFuture.failedFuture(e);
+        }
+        consulta.whenComplete((resultado, error) -> {
+            ResultadoConsulta r = error != null ? ResultadoConsulta.error(error.getMessage()) : resultado;
+            if (r.esCacheable()) {
+                guardar(dni, r);
+            }
+            // Se guarda antes de retirar la consulta en curso, así quien llegue
+            // después la encuentra en una de las dos estructuras
+            enCurso.remove(dni, propia);
+            propia.complete(r);
+        });
+        return propia.copy();
+    }
+
+    private ResultadoConsulta leer(String dni) {
+        cerrojo.lock();
+        try {
+            Entrada entrada = entradas.get(dni);
+            if (entrada == null) {
+                return null;
+            }
+            if (System.nanoTime() - entrada.expiraNanos >= 0) {
+                entradas.remove(dni);
+                return null;
+            }
+            return entrada.resultado;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    private void guardar(String dni, ResultadoConsulta resultado) {
+        long ttl = resultado.esEncontrado() ? ttlNanos : ttlNegativoNanos;
+        if (ttl <= 0) {
+            return;
+        }
+        cerrojo.lock();
+        try {
+            entradas.put(dni, new Entrada(resultado, System.nanoTime() + ttl));
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    public int getTamano() {
+        cerrojo.lock();
+        try {
+            return entradas.size();
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    public long getAciertos() {
+        return aciertos.sum();
+    }
+
+    public long getFallos() {
+        return fallos.sum();
+    }
+
+    /** Búsquedas que se unieron a una consulta ya en curso en lugar de lanzar otra. */
+    public long getCompartidas() {
+        return compartidas.sum();
+    }
+}
@@ -0,0 +1,266 @@
+package com.mycompany.cliente.java;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Prueba de carga repartida entre varios procesos Cliente.
+ *
+ * El coordinador escucha en un socket TCP, espera a que se conecten N
+ * trabajadores y manda a cada uno su parte de la prueba (1/N de la tasa y
+ * de las peticiones) junto con un instante de inicio común. Cada
+ * trabajador ejecuta su MotorCarga y devuelve el resultado con el
+ * histograma serializado; el coordinador los fusiona, y como todos los
+ * histogramas comparten buckets el informe combinado es exacto y no una
+ * media de percentiles.
+ *
+ * El instante de inicio va en milisegundos de reloj de pared: entre
+ * procesos de la misma máquina es el mismo reloj. El trabajador k además
+ * retrasa su calendario k/tasa segundos, así que con tasa constante la
+ * unión de los N calendarios es la misma secuencia que enviaría un único
+ * proceso, sin ráfagas de N peticiones simultáneas.
+ *
+ * Los usuarios se reparten igual: el trabajador k envía los k, k+N,
+ * k+2N... de la secuencia, ya sea del generador, con una semilla que el
+ * coordinador fija para todos, o de las líneas del dataset.
+ */
+public final class CargaDistribuida {
+    private static final int MAGICO = 0x43415247;
+    private static final int VERSION = 2;
+
+    private CargaDistribuida() {
+    }
+
+    /** Lo que el coordinador encarga a un trabajador. */
+    public static final class Orden {
+        int indice;
+        int trabajadores;
+        long inicioEpochMillis;
+        long desfaseNanos;
+        /** Semilla del generador, la misma en todos los trabajadores. */
+        long semilla;
+        final MotorCarga.Parametros carga = new MotorCarga.Parametros();
+
+        void escribir(DataOutput salida) throws IOException {
+            salida.writeInt(indice);
+            salida.writeInt(trabajadores);
+            salida.writeLong(inicioEpochMillis);
+            salida.writeLong(desfaseNanos);
+            salida.writeLong(semilla);
+            salida.writeLong(carga.peticiones);
+            salida.writeLong(carga.duracionSegundos);
+            salida.writeDouble(carga.tasaInicial);
+            salida.writeDouble(carga.tasaFinal);
+            salida.writeLong(carga.calentamientoSegundos);
+            salida.writeLong(carga.intervaloReporteSegundos);
+            salida.writeLong(carga.esperaFinalSegundos);
+        }
+
+        static Orden leer(DataInput entrada) throws IOException {
+            Orden o = new Orden();
+            o.indice = entrada.readInt();
+            o.trabajadores = entrada.readInt();
+            o.inicioEpochMillis = entrada.readLong();
+            o.desfaseNanos = entrada.readLong();
+            o.semilla = entrada.readLong();
+            o.carga.peticiones = entrada.readLong();
+            o.carga.duracionSegundos = entrada.readLong();
+            o.carga.tasaInicial = entrada.readDouble();
+            o.carga.tasaFinal = entrada.readDouble();
+            o.carga.calentamientoSegundos = entrada.readLong();
+            o.carga.intervaloReporteSegundos = entrada.readLong();
+            o.carga.esperaFinalSegundos = entrada.readLong();
+            return o;
+        }
+
+        public int getIndice() {
+            return indice;
+        }
+
+        public int getTrabajadores() {
+            return trabajadores;
+        }
+
+        public long getSemilla() {
+            return semilla;
+        }
+
+        public MotorCarga.Parametros getCarga() {
+            return carga;
+        }
+    }
+
+    public static final class Parametros {
+        int trabajadores = 2;
+        int puerto = 7070;
+        /** Dirección de escucha; por defecto sólo procesos de la propia máquina. */
+        String direccion = "127.0.0.1";
+        /** Margen entre el reparto de órdenes y el inicio, para que todos estén esperando. */
+        long retrasoInicioMillis = 2000;
+        long esperaConexionSegundos = 120;
+        /** Semilla de usuarios para todos los trabajadores; cero para elegirla al azar. */
+        long semilla = 0;
+    }
+
+    /** Lo que devuelve el coordinador: el resultado de cada trabajador y el combinado. */
+    public static final class Informe {
+        final List<String> trabajadores = new ArrayList<>();
+        /** null para los trabajadores que fallaron o se desconectaron. */
+        final List<MotorCarga.Resultado> parciales = new ArrayList<>();
+        final List<String> fallos = new ArrayList<>();
+        final MotorCarga.Resultado total = new MotorCarga.Resultado();
+    }
+
+    @FunctionalInterface
+    public interface Ejecutor {
+        MotorCarga.Resultado ejecutar(Orden orden) throws Exception;
+    }
+
+    /** Parte del trabajador k de N: reparto de peticiones con el resto a los primeros. */
+    static Orden repartir(MotorCarga.Parametros total, int indice, int trabajadores) {
+        Orden o = new Orden();
+        o.indice = indice;
+        o.trabajadores = trabajadores;
+        MotorCarga.Parametros p = o.carga;
+        p.peticiones = total.peticiones / trabajadores + (indice < total.peticiones % trabajadores ? 1 : 0);
+        p.duracionSegundos = total.duracionSegundos;
+        p.tasaInicial = total.tasaInicial / trabajadores;
+        p.tasaFinal = total.tasaFinal / trabajadores;
+        p.calentamientoSegundos = total.calentamientoSegundos;
+        p.intervaloReporteSegundos = total.intervaloReporteSegundos;
+        p.esperaFinalSegundos = total.esperaFinalSegundos;
+        o.desfaseNanos = (long) (indice * 1e9 / Math.max(total.tasaInicial, 0.001));
+        return o;
+    }
+
+    /**
+     * Espera a los trabajadores, reparte la prueba y fusiona los
+     * resultados. Un trabajador que falla o se desconecta no invalida el
+     * resto; queda anotado en el informe.
+     */
+    public static Informe coordinar(MotorCarga.Parametros carga, Parametros p) throws IOException {
+        List<Socket> conexiones = new ArrayList<>();
+        List<DataInputStream> entradas = new ArrayList<>();
+        Informe informe = new Informe();
+        try (ServerSocket servidor = new ServerSocket(p.puerto, 50, InetAddress.getByName(p.direccion))) {
+            servidor.setSoTimeout((int) TimeUnit.SECONDS.toMillis(p.esperaConexionSegundos));
+            System.out.println("🛰️  Coordinador en " + p.direccion + ":" + p.puerto
+                + ", esperando " + p.trabajadores + " trabajador(es)...");
+            while (conexiones.size() < p.trabajadores) {
+                Socket s;
+                try {
+                    s = servidor.accept();
+                } catch (SocketTimeoutException e) {
+                    throw new IOException("Sólo se conectaron " + conexiones.size() + " de "
+                        + p.trabajadores + " trabajadores en " + p.esperaConexionSegundos + " s");
+                }
+                DataInputStream entrada = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+                try {
+                    // Lo que no salude a tiempo con el protocolo no es un trabajador
+                    s.setSoTimeout(5000);
+                    if (entrada.readInt() != MAGICO || entrada.readInt() != VERSION) {
+                        s.close();
+                        continue;
+                    }
+                    informe.trabajadores.add(entrada.readUTF());
+                    s.setSoTimeout(0);
+                } catch (IOException e) {
+                    s.close();
+                    continue;
+                }
+                conexiones.add(s);
+                entradas.add(entrada);
+                System.out.println("   ✓ Trabajador " + conexiones.size() + "/" + p.trabajadores
+                    + ": " + informe.trabajadores.get(conexiones.size() - 1));
+            }
+
+            long inicio = System.currentTimeMillis() + p.retrasoInicioMillis;
+            // Con una semilla por proceso las partes k, k+N... no serían de la misma secuencia
+            long semilla = p.semilla != 0 ? p.semilla : ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+            for (int k = 0; k < conexiones.size(); k++) {
+                Orden orden = repartir(carga, k, conexiones.size());
+                orden.inicioEpochMillis = inicio;
+                orden.semilla = semilla;
+                DataOutputStream salida = new DataOutputStream(new BufferedOutputStream(conexiones.get(k).getOutputStream()));
+                orden.escribir(salida);
+                salida.flush();
+            }
+            System.out.println("🚀 Órdenes enviadas; inicio en " + p.retrasoInicioMillis + " ms\n");
+
+            for (int k = 0; k < conexiones.size(); k++) {
+                MotorCarga.Resultado parcial = null;
+                try {
+                    DataInputStream entrada = entradas.get(k);
+                    if (entrada.readBoolean()) {
+                        parcial = MotorCarga.Resultado.leer(entrada);
+                    } else {
+                        informe.fallos.add("Trabajador " + (k + 1) + ": " + entrada.readUTF());
+                    }
+                } catch (IOException e) {
+                    informe.fallos.add("Trabajador " + (k + 1) + " desconectado: " + e.getMessage());
+                }
+                informe.parciales.add(parcial);
+                if (parcial != null) {
+                    informe.total.fusionar(parcial);
+                }
+            }
+        } finally {
+            for (Socket s : conexiones) {
+                try {
+                    s.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        return informe;
+    }
+
+    /**
+     * Se conecta al coordinador, espera la orden y el instante de inicio,
+     * ejecuta su parte y devuelve el resultado. Bloquea hasta terminar.
+     */
+    public static void trabajar(String host, int puerto, String descripcion, Ejecutor ejecutor) throws IOException {
+        try (Socket s = new Socket(host, puerto)) {
+            DataOutputStream salida = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+            DataInputStream entrada = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            salida.writeInt(MAGICO);
+            salida.writeInt(VERSION);
+            salida.writeUTF(descripcion);
+            salida.flush();
+            System.out.println("🛰️  Conectado al coordinador " + host + ":" + puerto + ", esperando orden...");
+
+            Orden orden = Orden.leer(entrada);
+            System.out.printf("📋 Trabajador %d/%d: %s a %.1f reg/s%n", orden.indice + 1, orden.trabajadores,
+                orden.carga.duracionSegundos > 0 ? orden.carga.duracionSegundos + " s" : orden.carga.peticiones + " peticiones",
+                orden.carga.tasaInicial);
+
+            long arranque = System.nanoTime() + orden.desfaseNanos
+                + TimeUnit.MILLISECONDS.toNanos(orden.inicioEpochMillis - System.currentTimeMillis());
+            long restante;
+            while ((restante = arranque - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(restante);
+            }
+
+            MotorCarga.Resultado resultado;
+            try {
+                resultado = ejecutor.ejecutar(orden);
+            } catch (Exception e) {
+                salida.writeBoolean(false);
+                salida.writeUTF(String.valueOf(e.getMessage()));
+                salida.flush();
+                throw new IOException("La prueba falló: " + e.getMessage(), e);
+            }
+            salida.writeBoolean(true);
+            resultado.escribir(salida);
+            salida.flush();
+        }
+    }
+}
@@ -1,145 +1,611 @@
 package com.mycompany.cliente.java;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.rabbitmq.client.*;
 import java.io.*;
+import java.lang.management.ManagementFactory;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class Cliente {
     private static String RABBITMQ_HOST;
-    private static final String EXCHANGE_NAME = "validation";
     private static int THREAD_POOL_SIZE = 10;
+    private static int TIMEOUT_SECONDS = 30;
+    private static boolean ASYNC_REQUESTS = false;
+    private static boolean VIRTUAL_THREADS = false;
+    private static boolean FAST_START = false;
+    private static long CONFIG_LOADED_NANOS;
     
-    private Connection connection;
-    private Channel channel;
-    private String replyQueueName;
-    private final Map<String, CompletableFuture<String>> pendingResponses = new ConcurrentHashMap<>();
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Transporte transporte;
+    private final ExecutorService despachador;
+    private final TablaPendientes pendientes;
+    private final LimitadorConcurrencia limitador;
+    private final MetricasCliente metricas = new MetricasCliente();
+    private final CacheConsultas cacheConsultas;
+    private final IndiceDni indiceDni;
     private final ExecutorService executorService;
-    private Map<String, Object> config;
+    private final AtomicInteger tareasActivas = new AtomicInteger();
+    private final ScheduledExecutorService timeoutScheduler;
+    private static Map<String, Object> config;
     
     public Cliente() throws Exception {
         loadConfig();
-        executorService = Executors.newFixedThreadPool(THREAD_POOL_SIZE);
-        setupRabbitMQ();
+        // Con hilos virtuales cada tarea tiene su propio hilo y la espera
+        // bloqueante de registrarUsuario no consume hilos de plataforma
+        executorService = VIRTUAL_THREADS
+            ? Executors.newVirtualThreadPerTaskExecutor()
+            : Executors.newFixedThreadPool(THREAD_POOL_SIZE);
+        pendientes = new TablaPendientes(
+            // Los ids compactos son opcionales (client.correlationIds: "compact")
+            "compact".equals(configString("client", "correlationIds", "uuid"))
+                ? TablaPendientes.ModoIds.COMPACTO : TablaPendientes.ModoIds.UUID,
+            configInt("client", "inFlightCapacity", 65536),
+            TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS));
+        timeoutScheduler = crearTimeoutScheduler();
+        limitador = crearLimitador();
+        cacheConsultas = new CacheConsultas(this::consultarDni,
+            configInt("queryCache", "capacity", 10000),
+            TimeUnit.SECONDS.toNanos(configInt("queryCache", "ttlSeconds", 300)),
+            TimeUnit.SECONDS.toNanos(configInt("queryCache", "negativeTtlSeconds", 30)));
+        indiceDni = crearIndiceDni();
+        // En arranque rápido el calentamiento corre mientras se conecta el transporte
+        CompletableFuture<Void> calentamiento = FAST_START
+            ? CompletableFuture.runAsync(() -> precalentar(pendientes.getModo()))
+            : CompletableFuture.completedFuture(null);
+        iniciarMetricas();
+        despachador = crearDespachador();
+        transporte = crearTransporte();
+        transporte.iniciar(this::alResponder);
+        calentamiento.join();
+    }
+    
+    /**
+     * Recorre una vez la ruta de una petición sin enviar nada (codificar,
+     * registrar y quitar de una tabla de pendientes, interpretar respuestas
+     * de éxito y de error) para que la carga e inicialización de clases, y
+     * las primeras compilaciones, no recaigan en la primera petición real.
+     * La tabla es una desechable con el mismo modo de ids que la del
+     * cliente: la real no gasta secuencias ni muestra entradas en vuelo.
+     */
+    private static void precalentar(TablaPendientes.ModoIds modo) {
+        byte[] exito = CodecMensajes.escribir(Map.of(
+            "status", "success", "message", "Usuario registrado", "user_id", 1, "amigos_guardados", List.of()));
+        byte[] error = CodecMensajes.escribir(Map.of(
+            "status", "error", "message", "El DNI 30000001 no está registrado en la base de datos"));
+        GeneradorDatos generador = new GeneradorDatos();
+        HistogramaLatencia latencias = new HistogramaLatencia();
+        TablaPendientes pendientes = new TablaPendientes(modo, 256, TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS));
+        try {
+            for (int i = 0; i < 200; i++) {
+                long inicio = System.nanoTime();
+                byte[] cuerpo = CodecMensajes.codificar(generador.generar(i));
+                CodecMensajes.leerRegistro(cuerpo, 0, cuerpo.length);
+                CompletableFuture<ResultadoRegistro> future = new CompletableFuture<>();
+                pendientes.quitar(pendientes.registrar(future), future);
+                ResultadoRegistro.desdeBytes(exito).getAmigosGuardados();
+                MetricasCliente.categoria(ResultadoRegistro.desdeBytes(error).getMensaje());
+                latencias.registrar(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - inicio));
+            }
+        } catch (IOException | RuntimeException e) {
+            // Sólo es calentamiento: si algo falla, falla igual en la primera petición
+        }
+    }
+    
+    private IndiceDni crearIndiceDni() throws IOException {
+        if (!configBoolean("fastReject", "enabled", false)) {
+            return null;
+        }
+        String archivo = configString("fastReject", "indexFile", "");
+        IndiceDni indice = archivo.isEmpty() ? new IndiceDni() : new IndiceDni(Paths.get(archivo));
+        System.out.println("   Rechazo local de duplicados: " + indice.getCantidad() + " DNIs conocidos"
+            + (indice.esPersistente() ? " (" + archivo + ")" : ""));
+        return indice;
+    }
+    
+    /**
+     * JMX queda activo por defecto; el endpoint HTTP sólo si metrics.httpPort
+     * es distinto de 0, y escucha únicamente en localhost.
+     */
+    private void iniciarMetricas() {
+        metricas.setEnVuelo(pendientes::getEnVuelo);
+        if (configBoolean("metrics", "jmx", true)) {
+            if (FAST_START) {
+                // Registrar el MBean inicializa toda la plataforma JMX; no hace falta esperarla
+                Thread t = new Thread(this::registrarJmx, "metricas-jmx");
+                t.setDaemon(true);
+                t.start();
+            } else {
+                registrarJmx();
+            }
+        }
+        int puerto = configInt("metrics", "httpPort", 0);
+        if (puerto > 0) {
+            try {
+                metricas.iniciarHttp(puerto);
+                System.out.println("   Métricas: http://127.0.0.1:" + puerto + "/metrics");
+            } catch (IOException e) {
+                System.out.println("⚠️  No se pudo abrir el puerto de métricas " + puerto + ": " + e.getMessage());
+            }
+        }
+    }
+    
+    private void registrarJmx() {
+        try {
+            metricas.registrarJmx();
+        } catch (Exception e) {
+            System.out.println("⚠️  No se pudieron registrar las métricas en JMX: " + e.getMessage());
+        }
+    }
+    
+    private LimitadorConcurrencia crearLimitador() {
+        if (!configBoolean("limiter", "enabled", false)) {
+            return null;
+        }
+        String modo = configString("limiter", "mode", "block");
+        LimitadorConcurrencia l = new LimitadorConcurrencia(
+            "fail".equals(modo) ? LimitadorConcurrencia.Modo.FALLAR
+                : "queue".equals(modo) ? LimitadorConcurrencia.Modo.ENCOLAR : LimitadorConcurrencia.Modo.BLOQUEAR,
+            configInt("limiter", "initialLimit", 20),
+            configInt("limiter", "minLimit", 1),
+            configInt("limiter", "maxLimit", 1000),
+            configInt("limiter", "maxQueue", 10000),
+            configDouble("limiter", "latencyTolerance", 2.0),
+            configDouble("limiter", "backoffRatio", 0.9),
+            executorService);
+        System.out.println("   Limitador: " + l.getModo() + ", límite inicial " + l.getLimite());
+        return l;
+    }
+    
+    /**
+     * Un único hilo expira los timeouts de todas las peticiones barriendo
+     * periódicamente la tabla de pendientes, en lugar de mantener un hilo
+     * bloqueado o una tarea programada por cada petición en vuelo.
+     */
+    private ScheduledExecutorService crearTimeoutScheduler() {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cliente-timeouts");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(
+            () -> pendientes.barrerExpiradas(future -> future.complete(ResultadoRegistro.TIMEOUT)),
+            100, 100, TimeUnit.MILLISECONDS);
+        return scheduler;
     }
     
     @SuppressWarnings("unchecked")
-    private void loadConfig() throws Exception {
+    private static void loadConfig() throws Exception {
         try {
-            String configContent = new String(Files.readAllBytes(Paths.get("config.json")));
-            config = objectMapper.readValue(configContent, Map.class);
+            config = CodecMensajes.leerMapa(Files.readAllBytes(Paths.get("config.json")));
             
             Map<String, Object> rabbitmqConfig = (Map<String, Object>) config.get("rabbitmq");
             RABBITMQ_HOST = (String) rabbitmqConfig.get("host");
             
             Map<String, Object> clientConfig = (Map<String, Object>) config.get("client");
             THREAD_POOL_SIZE = (Integer) clientConfig.get("threadPoolSize");
+            TIMEOUT_SECONDS = configInt("client", "timeoutSeconds", 30);
+            ASYNC_REQUESTS = configBoolean("client", "asyncRequests", false);
+            VIRTUAL_THREADS = "virtual".equals(configString("client", "executionMode", "platform"));
+            FAST_START = configBoolean("client", "fastStart", false);
             
             System.out.println("📋 Configuración cargada:");
             System.out.println("   RabbitMQ Host: " + RABBITMQ_HOST);
-            System.out.println("   Thread Pool: " + THREAD_POOL_SIZE);
+            System.out.println("   Hilos: " + (VIRTUAL_THREADS ? "virtuales (uno por tarea)" : "pool de " + THREAD_POOL_SIZE));
+            System.out.println("   Modo: " + (ASYNC_REQUESTS ? "asíncrono" : "bloqueante")
+                + (FAST_START ? ", arranque rápido" : ""));
         } catch (Exception e) {
             System.out.println("⚠️  No se pudo cargar config.json, usando valores por defecto");
             RABBITMQ_HOST = "localhost";
             THREAD_POOL_SIZE = 10;
         }
+        CONFIG_LOADED_NANOS = System.nanoTime();
     }
     
     @SuppressWarnings("unchecked")
-    private void setupRabbitMQ() throws Exception {
-        ConnectionFactory factory = new ConnectionFactory();
-        factory.setHost(RABBITMQ_HOST);
-        
-        if (config != null && config.containsKey("rabbitmq")) {
-            Map<String, Object> rabbitmqConfig = (Map<String, Object>) config.get("rabbitmq");
-            factory.setUsername((String) rabbitmqConfig.get("username"));
-            factory.setPassword((String) rabbitmqConfig.get("password"));
+    private static Object leerConfig(String seccion, String clave) {
+        if (config == null || !(config.get(seccion) instanceof Map)) {
+            return null;
+        }
+        return ((Map<String, Object>) config.get(seccion)).get(clave);
+    }
+    
+    private static int configInt(String seccion, String clave, int porDefecto) {
+        Object valor = leerConfig(seccion, clave);
+        return valor instanceof Number ? ((Number) valor).intValue() : porDefecto;
+    }
+    
+    private static long configLong(String seccion, String clave, long porDefecto) {
+        Object valor = leerConfig(seccion, clave);
+        return valor instanceof Number ? ((Number) valor).longValue() : porDefecto;
+    }
+    
+    private static String configString(String seccion, String clave, String porDefecto) {
+        Object valor = leerConfig(seccion, clave);
+        return valor instanceof String ? (String) valor : porDefecto;
+    }
+    
+    private static double configDouble(String seccion, String clave, double porDefecto) {
+        Object valor = leerConfig(seccion, clave);
+        return valor instanceof Number ? ((Number) valor).doubleValue() : porDefecto;
+    }
+    
+    private static boolean configBoolean(String seccion, String clave, boolean porDefecto) {
+        Object valor = leerConfig(seccion, clave);
+        return valor instanceof Boolean ? (Boolean) valor : porDefecto;
+    }
+    
+    /**
+     * client.transport elige el medio: "amqp" (por defecto) conecta con
+     * RabbitMQ; "loopback" simula LP2 y LP1 dentro del proceso con los
+     * parámetros de la sección loopback. La propiedad de sistema
+     * cliente.transporte tiene prioridad sobre config.json.
+     */
+    private Transporte crearTransporte() {
+        String medio = System.getProperty("cliente.transporte", configString("client", "transport", "amqp"));
+        if ("loopback".equals(medio)) {
+            SimuladorBackend.Parametros p = new SimuladorBackend.Parametros();
+            p.latenciaLp2Micros = configLong("loopback", "lp2LatencyMicros", p.latenciaLp2Micros);
+            p.latenciaLp1Micros = configLong("loopback", "lp1LatencyMicros", p.latenciaLp1Micros);
+            p.distribucion = "exponential".equals(configString("loopback", "latencyDistribution", "fixed"))
+                ? SimuladorBackend.DistribucionLatencia.EXPONENCIAL : SimuladorBackend.DistribucionLatencia.FIJA;
+            p.trabajadoresLp2 = configInt("loopback", "lp2Workers", p.trabajadoresLp2);
+            p.trabajadoresLp1 = configInt("loopback", "lp1Workers", p.trabajadoresLp1);
+            p.proporcionErrores = configDouble("loopback", "errorRatio", p.proporcionErrores);
+            p.correoUnico = configBoolean("loopback", "uniqueEmail", p.correoUnico);
+            p.todosLosDniValidos = configBoolean("loopback", "allDnisValid", p.todosLosDniValidos);
+            return new TransporteLoopback(p);
+        }
+        TransporteAmqp.Parametros p = new TransporteAmqp.Parametros();
+        p.host = RABBITMQ_HOST;
+        p.usuario = configString("rabbitmq", "username", p.usuario);
+        p.clave = configString("rabbitmq", "password", p.clave);
+        p.conexionesPublicacion = configInt("rabbitmq", "publisherConnections", p.conexionesPublicacion);
+        p.canalesPublicacion = configInt("rabbitmq", "publisherChannels", p.canalesPublicacion);
+        p.reparto = "correlation".equals(configString("rabbitmq", "publisherStriping", "thread"))
+            ? PoolCanales.Reparto.CORRELACION : PoolCanales.Reparto.HILO;
+        p.confirmaciones = configBoolean("rabbitmq", "publisherConfirms", p.confirmaciones);
+        p.respuestaDirecta = configBoolean("rabbitmq", "directReplyTo", p.respuestaDirecta);
+        p.colasRespuesta = configInt("rabbitmq", "replyConsumers", p.colasRespuesta);
+        p.reintentos = configInt("rabbitmq", "connectRetries", p.reintentos);
+        if (FAST_START) {
+            // Primer reintento casi inmediato y backoff exponencial con jitter
+            // en lugar de 5 s fijos; los canales se abren a la vez
+            p.esperaInicialMillis = configLong("rabbitmq", "retryInitialMillis", 100);
+            p.esperaMaximaMillis = configLong("rabbitmq", "retryMaxMillis", 5000);
+            p.jitter = true;
+            p.aperturaParalela = true;
+        }
+        return new TransporteAmqp(p);
+    }
+    
+    /**
+     * Con client.replyDispatchThreads mayor que 0 los futures se completan
+     * en un pool propio: las continuaciones del llamador (interpretar la
+     * respuesta, métricas, informes) dejan de ejecutarse en el hilo del
+     * transporte, que sólo busca la petición y vuelve a recibir.
+     */
+    private ExecutorService crearDespachador() {
+        int hilos = configInt("client", "replyDispatchThreads", 0);
+        if (hilos <= 0) {
+            return null;
+        }
+        AtomicInteger numero = new AtomicInteger();
+        System.out.println("   Despacho de respuestas: " + hilos + " hilo(s)");
+        return Executors.newFixedThreadPool(hilos, r -> {
+            Thread t = new Thread(r, "cliente-respuestas-" + numero.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+    
+    private void alResponder(String correlationId, byte[] cuerpo) {
+        CompletableFuture<ResultadoRegistro> future = pendientes.completar(correlationId);
+        if (future == null) {
+            return;
+        }
+        // El instante de llegada se toma aquí, no cuando el despachador llegue a ejecutarlo
+        ResultadoRegistro resultado = ResultadoRegistro.desdeBytes(cuerpo);
+        if (despachador == null) {
+            future.complete(resultado);
         } else {
-            factory.setUsername("admin");
-            factory.setPassword("admin123");
+            despachador.execute(() -> future.complete(resultado));
         }
-        
-        // Configuración de reconexión
-        factory.setAutomaticRecoveryEnabled(true);
-        factory.setNetworkRecoveryInterval(5000);
-        
-        int maxRetries = 10;
-        for (int i = 0; i < maxRetries; i++) {
-            try {
-                connection = factory.newConnection();
-                channel = connection.createChannel();
-                
-                // Declarar exchange
-                channel.exchangeDeclare(EXCHANGE_NAME, "direct", true);
-                
-                // Crear cola temporal para respuestas
-                replyQueueName = channel.queueDeclare().getQueue();
-                
-                // Configurar consumidor de respuestas
-                setupResponseConsumer();
-                
-                System.out.println("✓ Cliente conectado a RabbitMQ en " + RABBITMQ_HOST);
-                break;
-            } catch (Exception e) {
-                System.out.println("Intento " + (i+1) + "/" + maxRetries + " - Error: " + e.getMessage());
-                Thread.sleep(5000);
-                if (i == maxRetries - 1) throw e;
+    }
+    
+    public CompletableFuture<ResultadoRegistro> registrarUsuario(Map<String, Object> userData) {
+        return registrarUsuario(RegistroUsuario.desdeMapa(userData));
+    }
+    
+    /**
+     * Con el limitador activo la petición primero obtiene un permiso; si el
+     * cliente está saturado y el modo es "fail" (o la cola está llena) se
+     * resuelve con error en el acto, sin llegar a publicarse.
+     */
+    public CompletableFuture<ResultadoRegistro> registrarUsuario(RegistroUsuario userData) {
+        long inicio = System.nanoTime();
+        ResultadoRegistro duplicado = rechazoLocal(userData.getDni());
+        CompletableFuture<ResultadoRegistro> resultado;
+        if (duplicado != null) {
+            resultado = CompletableFuture.completedFuture(duplicado);
+        } else {
+            resultado = admitirYEnviar(userData);
+            if (indiceDni != null) {
+                resultado.thenAccept(r -> recordarRegistro(userData.getDni(), r));
             }
         }
+        resultado.thenAccept(r -> metricas.registrarResultado(r, System.nanoTime() - inicio));
+        return resultado;
     }
     
-    private void setupResponseConsumer() throws IOException {
-        DeliverCallback deliverCallback = (consumerTag, delivery) -> {
-            String correlationId = delivery.getProperties().getCorrelationId();
-            CompletableFuture<String> future = pendingResponses.remove(correlationId);
-            if (future != null) {
-                future.complete(new String(delivery.getBody(), "UTF-8"));
-            }
-        };
-        
-        channel.basicConsume(replyQueueName, true, deliverCallback, consumerTag -> {});
+    /**
+     * Con el rechazo local activo, un DNI que este cliente ya vio
+     * registrado se responde aquí con el mismo error que daría LP1.
+     *
+     * @return el error a devolver, o null si hay que enviar la petición
+     */
+    private ResultadoRegistro rechazoLocal(String dni) {
+        if (indiceDni == null || !indiceDni.contiene(dni)) {
+            return null;
+        }
+        metricas.registrarRechazoLocal();
+        return ResultadoRegistro.error(mensajeDuplicado(dni));
+    }
+    
+    /** Los DNI que LP1 guarda, o que rechaza por existir ya, pasan al índice. */
+    private void recordarRegistro(String dni, ResultadoRegistro resultado) {
+        if (resultado.esExitoso() || mensajeDuplicado(dni).equals(resultado.getMensaje())) {
+            indiceDni.marcar(dni);
+        }
     }
     
-    public CompletableFuture<String> registrarUsuario(Map<String, Object> userData) {
+    private static String mensajeDuplicado(String dni) {
+        return "Usuario con DNI " + dni + " ya existe";
+    }
+    
+    private CompletableFuture<ResultadoRegistro> admitirYEnviar(RegistroUsuario userData) {
+        if (limitador == null) {
+            return enviarRegistro(userData);
+        }
+        CompletableFuture<Void> permiso = limitador.adquirir();
+        if (permiso.isCompletedExceptionally()) {
+            return CompletableFuture.completedFuture(ResultadoRegistro.error(permiso.exceptionNow().getMessage()));
+        }
+        return permiso.thenCompose(ok -> {
+            long inicio = System.nanoTime();
+            // Un error local (timeout, publicación o confirmación fallida) es
+            // un fallo del sistema aunque llegue rápido; uno de LP1/LP2 no
+            return enviarRegistro(userData).whenComplete((resultado, error) ->
+                limitador.liberar(System.nanoTime() - inicio, error != null || resultado.esLocal()));
+        });
+    }
+    
+    private CompletableFuture<ResultadoRegistro> enviarRegistro(RegistroUsuario userData) {
+        if (ASYNC_REQUESTS) {
+            return registrarUsuarioAsync(userData);
+        }
         return CompletableFuture.supplyAsync(() -> {
+            tareasActivas.incrementAndGet();
+            CompletableFuture<ResultadoRegistro> responseFuture = new CompletableFuture<>();
+            String correlationId = pendientes.registrar(responseFuture);
             try {
-                String correlationId = UUID.randomUUID().toString();
-                CompletableFuture<String> responseFuture = new CompletableFuture<>();
-                pendingResponses.put(correlationId, responseFuture);
-                
-                AMQP.BasicProperties props = new AMQP.BasicProperties
-                    .Builder()
-                    .correlationId(correlationId)
-                    .replyTo(replyQueueName)
-                    .build();
-                
-                String message = objectMapper.writeValueAsString(userData);
-                
-                synchronized (channel) {
-                    channel.basicPublish(EXCHANGE_NAME, "check", props, message.getBytes("UTF-8"));
-                }
+                publicarSolicitud(correlationId, userData, responseFuture);
                 
                 // Esperar respuesta con timeout
-                int timeout = 30;
-                if (config != null && config.containsKey("client")) {
-                    Map<String, Object> clientConfig = (Map<String, Object>) config.get("client");
-                    timeout = (Integer) clientConfig.get("timeoutSeconds");
-                }
-                return responseFuture.get(timeout, TimeUnit.SECONDS);
+                return responseFuture.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
                 
             } catch (TimeoutException e) {
-                return "{\"status\":\"error\",\"message\":\"Timeout esperando respuesta\"}";
+                pendientes.quitar(correlationId, responseFuture);
+                return ResultadoRegistro.TIMEOUT;
             } catch (Exception e) {
-                return "{\"status\":\"error\",\"message\":\"" + e.getMessage() + "\"}";
+                pendientes.quitar(correlationId, responseFuture);
+                return ResultadoRegistro.error(e.getMessage());
+            } finally {
+                tareasActivas.decrementAndGet();
             }
         }, executorService);
     }
     
+    /**
+     * Publica y devuelve de inmediato el future pendiente, sin ocupar ningún
+     * hilo del pool mientras se espera la respuesta. El timeout lo expira el
+     * barrido periódico de la tabla de pendientes, que además retira la entrada.
+     *
+     * Es opcional: se activa con client.asyncRequests: true en config.json.
+     * Por defecto cada petición espera su respuesta en un hilo del pool.
+     */
+    private CompletableFuture<ResultadoRegistro> registrarUsuarioAsync(RegistroUsuario userData) {
+        CompletableFuture<ResultadoRegistro> responseFuture = new CompletableFuture<>();
+        String correlationId = pendientes.registrar(responseFuture);
+        
+        try {
+            publicarSolicitud(correlationId, userData, responseFuture);
+        } catch (Exception e) {
+            fallarPendiente(correlationId, responseFuture, e.getMessage());
+        }
+        
+        return responseFuture;
+    }
+    
+    /**
+     * Registra un lote de usuarios publicándolo seguido en un mismo canal.
+     * No espera a cada mensaje: las confirmaciones del broker (si están
+     * activas) y las respuestas llegan de forma asíncrona, y una publicación
+     * rechazada completa su future con error sin esperar al timeout.
+     */
+    public List<CompletableFuture<ResultadoRegistro>> registrarUsuarios(List<RegistroUsuario> usuarios) {
+        return publicarLote(usuarios).respuestas;
+    }
+    
+    /**
+     * Variante en streaming de {@link #registrarUsuarios(List)}: consume el
+     * iterador en lotes de tamanoLote y publica el siguiente lote mientras
+     * el broker confirma el anterior, de modo que nunca hay más de dos lotes
+     * sin confirmar. Cada respuesta se entrega a alResponder conforme llega.
+     *
+     * @return número de usuarios publicados
+     */
+    public long registrarUsuarios(Iterator<RegistroUsuario> usuarios, int tamanoLote,
+                                  Consumer<ResultadoRegistro> alResponder) throws InterruptedException {
+        long publicados = 0;
+        CompletableFuture<Void> loteAnterior = CompletableFuture.completedFuture(null);
+        
+        while (usuarios.hasNext()) {
+            List<RegistroUsuario> usuariosLote = new ArrayList<>(tamanoLote);
+            while (usuarios.hasNext() && usuariosLote.size() < tamanoLote) {
+                usuariosLote.add(usuarios.next());
+            }
+            
+            Lote lote = publicarLote(usuariosLote);
+            lote.respuestas.forEach(f -> f.thenAccept(alResponder));
+            publicados += usuariosLote.size();
+            
+            esperarSinFallar(loteAnterior);
+            loteAnterior = lote.confirmado;
+        }
+        esperarSinFallar(loteAnterior);
+        
+        return publicados;
+    }
+    
+    private static final class Lote {
+        final List<CompletableFuture<ResultadoRegistro>> respuestas;
+        final CompletableFuture<Void> confirmado;
+        
+        Lote(List<CompletableFuture<ResultadoRegistro>> respuestas, CompletableFuture<Void> confirmado) {
+            this.respuestas = respuestas;
+            this.confirmado = confirmado;
+        }
+    }
+    
+    private Lote publicarLote(List<RegistroUsuario> usuarios) {
+        long inicio = System.nanoTime();
+        List<CompletableFuture<ResultadoRegistro>> respuestas = new ArrayList<>(usuarios.size());
+        List<CompletableFuture<ResultadoRegistro>> publicadas = new ArrayList<>(usuarios.size());
+        List<Transporte.Mensaje> mensajes = new ArrayList<>(usuarios.size());
+        long[] nanosSerializacion = new long[usuarios.size()];
+        
+        for (RegistroUsuario userData : usuarios) {
+            CompletableFuture<ResultadoRegistro> responseFuture = new CompletableFuture<>();
+            respuestas.add(responseFuture);
+            responseFuture.thenAccept(r -> metricas.registrarResultado(r, System.nanoTime() - inicio));
+            ResultadoRegistro duplicado = rechazoLocal(userData.getDni());
+            if (duplicado != null) {
+                responseFuture.complete(duplicado);
+                continue;
+            }
+            if (indiceDni != null) {
+                responseFuture.thenAccept(r -> recordarRegistro(userData.getDni(), r));
+            }
+            String correlationId = pendientes.registrar(responseFuture);
+            try {
+                long t0 = System.nanoTime();
+                byte[] cuerpo = CodecMensajes.codificar(userData);
+                nanosSerializacion[mensajes.size()] = System.nanoTime() - t0;
+                mensajes.add(new Transporte.Mensaje(correlationId, cuerpo));
+                publicadas.add(responseFuture);
+            } catch (IOException e) {
+                fallarPendiente(correlationId, responseFuture, e.getMessage());
+            }
+        }
+        
+        List<CompletableFuture<Void>> confirmaciones = new ArrayList<>(mensajes.size());
+        try {
+            long t1 = System.nanoTime();
+            confirmaciones = transporte.publicarLote("check", mensajes);
+            long publicado = System.nanoTime();
+            // El lote sale en una sola ráfaga; a cada mensaje se le imputa su parte
+            long nanosPublicacion = mensajes.isEmpty() ? 0 : (publicado - t1) / mensajes.size();
+            for (int i = 0; i < confirmaciones.size(); i++) {
+                metricas.registrarEnvio(nanosSerializacion[i], nanosPublicacion);
+                publicadas.get(i).thenAccept(r -> metricas.registrarLlegada(r, publicado));
+                vincularConfirmacion(mensajes.get(i).correlationId, publicadas.get(i), confirmaciones.get(i));
+            }
+        } catch (IOException | RuntimeException e) {
+            // No salió ningún mensaje del lote: ninguno tendrá respuesta
+            for (int i = 0; i < mensajes.size(); i++) {
+                fallarPendiente(mensajes.get(i).correlationId, publicadas.get(i), e.getMessage());
+            }
+        }
+        
+        return new Lote(respuestas, CompletableFuture.allOf(confirmaciones.toArray(new CompletableFuture<?>[0])));
+    }
+    
+    private static void esperarSinFallar(CompletableFuture<?> future) throws InterruptedException {
+        try {
+            future.get();
+        } catch (ExecutionException ignored) {
+            // Los rechazos ya se reflejan en la respuesta de cada usuario
+        }
+    }
+    
+    private void fallarPendiente(String correlationId, CompletableFuture<ResultadoRegistro> responseFuture, String mensaje) {
+        if (pendientes.quitar(correlationId, responseFuture)) {
+            responseFuture.complete(ResultadoRegistro.error(mensaje));
+        }
+    }
+    
+    /**
+     * Si el broker no confirma la publicación la respuesta nunca llegará, así
+     * que se completa con error en lugar de esperar al timeout.
+     */
+    private void vincularConfirmacion(String correlationId, CompletableFuture<ResultadoRegistro> responseFuture,
+                                      CompletableFuture<Void> confirmacion) {
+        confirmacion.whenComplete((ok, error) -> {
+            if (error != null) {
+                fallarPendiente(correlationId, responseFuture,
+                    "Publicación no confirmada por el broker: " + error.getMessage());
+            }
+        });
+    }
+    
+    /**
+     * Serializa y publica, midiendo cada etapa por separado; la primera
+     * respuesta se mide desde que termina la publicación hasta que el
+     * consumidor recibe el mensaje, antes de que lo procese el llamador.
+     */
+    private void publicarSolicitud(String correlationId, RegistroUsuario userData,
+                                   CompletableFuture<ResultadoRegistro> responseFuture) throws IOException {
+        long t0 = System.nanoTime();
+        byte[] message = CodecMensajes.codificar(userData);
+        long t1 = System.nanoTime();
+        CompletableFuture<Void> confirmacion = transporte.publicar("check", correlationId, message);
+        long publicado = System.nanoTime();
+        metricas.registrarEnvio(t1 - t0, publicado - t1);
+        responseFuture.thenAccept(r -> metricas.registrarLlegada(r, publicado));
+        vincularConfirmacion(correlationId, responseFuture, confirmacion);
+    }
+    
+    /**
+     * Busca un DNI en BD2. Pasa por la caché de consultas: los DNI
+     * frecuentes se resuelven sin salir del cliente y las búsquedas
+     * simultáneas del mismo DNI comparten una sola consulta a LP2.
+     */
+    public CompletableFuture<ResultadoConsulta> buscarDni(String dni) {
+        return cacheConsultas.buscar(dni);
+    }
+    
+    /**
+     * Consulta RPC a LP2 por la routing key "query". Usa la misma cola de
+     * respuestas y tabla de pendientes que los registros, así que hereda
+     * sus timeouts y el manejo de confirmaciones.
+     */
+    private CompletableFuture<ResultadoConsulta> consultarDni(String dni) {
+        CompletableFuture<ResultadoRegistro> responseFuture = new CompletableFuture<>();
+        String correlationId = pendientes.registrar(responseFuture);
+        try {
+            CompletableFuture<Void> confirmacion = transporte.publicar("query", correlationId,
+                CodecMensajes.codificarConsulta(dni));
+            vincularConfirmacion(correlationId, responseFuture, confirmacion);
+        } catch (Exception e) {
+            fallarPendiente(correlationId, responseFuture, e.getMessage());
+        }
+        return responseFuture.thenApply(ResultadoConsulta::desde);
+    }
+    
     public void iniciarInterfaz() {
         Scanner scanner = new Scanner(System.in);
         
@@ -148,11 +614,12 @@ public class Cliente {
             System.out.println("║     SISTEMA DE REGISTRO DE USUARIOS  ║");
             System.out.println("╠══════════════════════════════════════╣");
             System.out.println("║  1. 📝 Registrar nuevo usuario       ║");
-            System.out.println("║  2. 🚀 Prueba de carga (1000 reg)   ║");
+            System.out.println("║  2. 🚀 Prueba de carga              ║");
             System.out.println("║  3. 📊 Ver estadísticas              ║");
             System.out.println("║  4. 🔍 Buscar usuario por DNI       ║");
             System.out.println("║  5. 🎲 Generar usuario aleatorio    ║");
-            System.out.println("║  6. 🚪 Salir                        ║");
+            System.out.println("║  6. 💾 Generar dataset de carga     ║");
+            System.out.println("║  7. 🚪 Salir                        ║");
             System.out.println("╚══════════════════════════════════════╝");
             System.out.print("Seleccione opción: ");
             
@@ -176,6 +643,9 @@ public class Cliente {
                     generarUsuarioAleatorio();
                     break;
                 case 6:
+                    generarDataset(scanner);
+                    break;
+                case 7:
                     cerrarConexiones();
                     return;
                 default:
@@ -187,16 +657,16 @@ public class Cliente {
     private void registrarUsuarioManual(Scanner scanner) {
         try {
             System.out.println("\n=== REGISTRO MANUAL DE USUARIO ===");
-            Map<String, Object> userData = new HashMap<>();
+            RegistroUsuario userData = new RegistroUsuario();
             
             System.out.print("📝 Nombre: ");
-            userData.put("nombre", scanner.nextLine());
+            userData.setNombre(scanner.nextLine());
             
             System.out.print("📧 Correo: ");
-            userData.put("correo", scanner.nextLine());
+            userData.setCorreo(scanner.nextLine());
             
             System.out.print("🔒 Clave: ");
-            userData.put("clave", scanner.nextLine());
+            userData.setClave(scanner.nextLine());
             
             System.out.print("🆔 DNI (8 dígitos): ");
             String dni = scanner.nextLine();
@@ -204,10 +674,10 @@ public class Cliente {
                 System.out.println("❌ DNI debe tener 8 dígitos");
                 return;
             }
-            userData.put("dni", dni);
+            userData.setDni(dni);
             
             System.out.print("📱 Teléfono: ");
-            userData.put("telefono", scanner.nextLine());
+            userData.setTelefono(scanner.nextLine());
             
             System.out.print("👥 Amigos (DNIs separados por coma, o vacío): ");
             String amigosStr = scanner.nextLine().trim();
@@ -217,27 +687,25 @@ public class Cliente {
                 for (String amigo : amigos) {
                     amigosList.add(amigo.trim());
                 }
-                userData.put("amigos", amigosList);
+                userData.setAmigos(amigosList);
             }
             
             System.out.println("\n⏳ Enviando registro...");
             long startTime = System.currentTimeMillis();
             
-            CompletableFuture<String> future = registrarUsuario(userData);
-            String response = future.get();
+            CompletableFuture<ResultadoRegistro> future = registrarUsuario(userData);
+            ResultadoRegistro response = future.get();
             
             long endTime = System.currentTimeMillis();
             
-            Map<String, Object> responseMap = objectMapper.readValue(response, Map.class);
-            
-            if ("success".equals(responseMap.get("status"))) {
-                System.out.println("\n✅ " + responseMap.get("message"));
-                System.out.println("🆔 ID asignado: " + responseMap.get("user_id"));
-                if (responseMap.containsKey("amigos_guardados")) {
-                    System.out.println("👥 Amigos vinculados: " + responseMap.get("amigos_guardados"));
+            if (response.esExitoso()) {
+                System.out.println("\n✅ " + response.getMensaje());
+                System.out.println("🆔 ID asignado: " + response.getUserId());
+                if (response.getAmigosGuardados() != null) {
+                    System.out.println("👥 Amigos vinculados: " + response.getAmigosGuardados());
                 }
             } else {
-                System.out.println("\n❌ Error: " + responseMap.get("message"));
+                System.out.println("\n❌ Error: " + response.getMensaje());
             }
             
             System.out.println("⏱️  Tiempo de respuesta: " + (endTime - startTime) + " ms");
@@ -247,93 +715,192 @@ public class Cliente {
         }
     }
     
-    @SuppressWarnings("unchecked")
-    private void ejecutarPruebaCarga() {
+    private static MotorCarga.Parametros parametrosCarga() {
+        MotorCarga.Parametros p = new MotorCarga.Parametros();
+        p.peticiones = configInt("loadTest", "requests", 1000);
+        p.duracionSegundos = configInt("loadTest", "durationSeconds", 0);
+        p.tasaInicial = configDouble("loadTest", "ratePerSecond", 200);
+        p.tasaFinal = configDouble("loadTest", "rampToRatePerSecond", 0);
+        p.calentamientoSegundos = configInt("loadTest", "warmupSeconds", 0);
+        p.intervaloReporteSegundos = configInt("loadTest", "reportIntervalSeconds", 1);
+        p.esperaFinalSegundos = TIMEOUT_SECONDS + 5;
+        p.archivoResultados = configString("loadTest", "resultsFile", "");
+        return p;
+    }
+    
+    private static GeneradorDatos.Parametros parametrosGenerador() {
+        GeneradorDatos.Parametros g = new GeneradorDatos.Parametros();
+        g.semilla = configLong("workload", "seed", 0);
+        String distribucion = configString("workload", "dniDistribution", "legacy");
+        g.distribucionDni = "sequential".equals(distribucion) ? GeneradorDatos.DistribucionDni.SECUENCIAL
+            : "uniform".equals(distribucion) ? GeneradorDatos.DistribucionDni.UNIFORME
+            : "zipf".equals(distribucion) ? GeneradorDatos.DistribucionDni.ZIPF : GeneradorDatos.DistribucionDni.LEGADO;
+        g.poblacion = configLong("workload", "population", 100_000);
+        g.exponenteZipf = configDouble("workload", "zipfExponent", 1.1);
+        g.dniBase = configInt("workload", "dniBase", 30_000_000);
+        g.probabilidadAmigos = configDouble("workload", "friendProbability", 0.3);
+        g.distribucionAmigos = "geometric".equals(configString("workload", "friendDistribution", "uniform"))
+            ? GeneradorDatos.DistribucionAmigos.GEOMETRICA : GeneradorDatos.DistribucionAmigos.UNIFORME;
+        g.maxAmigos = configInt("workload", "maxFriends", 3);
+        g.mediaAmigos = configDouble("workload", "meanFriends", 1.5);
+        return g;
+    }
+    
+    private void generarDataset(Scanner scanner) {
+        try {
+            System.out.print("\n💾 Archivo de salida (.jsonl): ");
+            String archivo = scanner.nextLine().trim();
+            System.out.print("🔢 Número de usuarios: ");
+            long n = Long.parseLong(scanner.nextLine().trim());
+            
+            long inicio = System.nanoTime();
+            DatasetUsuarios.escribir(Paths.get(archivo), new GeneradorDatos(parametrosGenerador()), n);
+            double segundos = (System.nanoTime() - inicio) / 1e9;
+            System.out.printf("✅ %d usuarios escritos en %s (%.2f s, %.0f usuarios/s)%n",
+                n, archivo, segundos, n / Math.max(segundos, 1e-9));
+            System.out.println("   Para reproducirlo, indíquelo en loadTest.datasetFile de config.json");
+        } catch (Exception e) {
+            System.err.println("❌ Error generando dataset: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Usuarios para la prueba de carga. Con varios trabajadores, el k-ésimo
+     * de N se queda con los usuarios k, k+N, k+2N... de la secuencia, de modo
+     * que entre todos envían exactamente lo que enviaría un único proceso.
+     *
+     * @param semilla la que fija el coordinador para todos los trabajadores;
+     *                cero para usar la de workload.seed
+     */
+    private static Supplier<RegistroUsuario> usuariosDeCarga(int indice, int trabajadores, long semilla)
+            throws IOException {
+        String dataset = configString("loadTest", "datasetFile", "");
+        if (dataset.isEmpty()) {
+            GeneradorDatos.Parametros g = parametrosGenerador();
+            if (semilla != 0) {
+                g.semilla = semilla;
+            }
+            // Sólo el hilo emisor de MotorCarga la recorre
+            return new GeneradorDatos(g).secuencia(indice, trabajadores);
+        }
+        System.out.println("   Reproduciendo " + dataset + "\n");
+        return DatasetUsuarios.reproducir(Paths.get(dataset), indice, trabajadores);
+    }
+    
+    private static void imprimirResultados(MotorCarga.Resultado r) {
+        HistogramaLatencia h = r.latencias;
+        
         System.out.println("\n╔══════════════════════════════════════╗");
-        System.out.println("║   PRUEBA DE CARGA - 1000 REGISTROS   ║");
+        System.out.println("║           RESULTADOS FINALES         ║");
+        System.out.println("╠══════════════════════════════════════╣");
+        System.out.printf("║ 📊 Enviadas: %-23d ║\n", r.enviadas);
+        System.out.printf("║ 📏 Medidas: %-24d ║\n", r.getMedidas());
+        System.out.printf("║ ✅ Exitosos: %-23d ║\n", r.exitosos.sum());
+        System.out.printf("║ ❌ Fallidos: %-23d ║\n", r.fallidos.sum());
+        System.out.printf("║ ⌛ Sin respuesta: %-18d ║\n", r.sinRespuesta);
+        System.out.printf("║ 📈 Throughput: %-21s ║\n", String.format("%.2f reg/s", r.getThroughput()));
+        System.out.printf("║ ⏱️  p50: %-28s ║\n", String.format("%.2f ms", h.percentil(50) / 1000.0));
+        System.out.printf("║ ⏱️  p90: %-28s ║\n", String.format("%.2f ms", h.percentil(90) / 1000.0));
+        System.out.printf("║ ⏱️  p99: %-28s ║\n", String.format("%.2f ms", h.percentil(99) / 1000.0));
+        System.out.printf("║ ⏱️  p99.9: %-26s ║\n", String.format("%.2f ms", h.percentil(99.9) / 1000.0));
+        System.out.printf("║ ⏱️  máx: %-28s ║\n", String.format("%.2f ms", h.getMaximo() / 1000.0));
         System.out.println("╚══════════════════════════════════════╝");
         
-        GeneradorDatos generador = new GeneradorDatos();
+        // Análisis de errores
+        if (!r.errores.isEmpty()) {
+            System.out.println("\n📋 Análisis de errores:");
+            r.errores.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                .limit(5)
+                .forEach(entry -> System.out.println("   • " + entry.getKey() + ": " + entry.getValue().sum()));
+        }
+    }
+    
+    private static CargaDistribuida.Parametros parametrosDistribuidos() {
+        CargaDistribuida.Parametros d = new CargaDistribuida.Parametros();
+        d.trabajadores = configInt("distributed", "workers", d.trabajadores);
+        d.puerto = configInt("distributed", "port", d.puerto);
+        d.direccion = configString("distributed", "listenAddress", d.direccion);
+        d.retrasoInicioMillis = configLong("distributed", "startDelayMillis", d.retrasoInicioMillis);
+        d.esperaConexionSegundos = configLong("distributed", "connectTimeoutSeconds", d.esperaConexionSegundos);
+        d.semilla = configLong("workload", "seed", d.semilla);
+        return d;
+    }
+    
+    /**
+     * Coordina una prueba de carga entre varios procesos lanzados con
+     * --trabajador. No conecta con el broker: sólo reparte y fusiona.
+     *
+     * @return true si todos los trabajadores entregaron su resultado
+     */
+    static boolean coordinarCarga(int trabajadores) throws IOException {
+        MotorCarga.Parametros p = parametrosCarga();
+        CargaDistribuida.Parametros d = parametrosDistribuidos();
+        if (trabajadores > 0) {
+            d.trabajadores = trabajadores;
+        }
         
-        long startTime = System.currentTimeMillis();
-        List<CompletableFuture<String>> futures = new ArrayList<>();
-        AtomicInteger exitosos = new AtomicInteger(0);
-        AtomicInteger fallidos = new AtomicInteger(0);
-        AtomicInteger contador = new AtomicInteger(0);
+        System.out.println("\n╔══════════════════════════════════════╗");
+        System.out.println("║   PRUEBA DE CARGA - DISTRIBUIDA      ║");
+        System.out.println("╚══════════════════════════════════════╝");
+        System.out.println("   " + (p.duracionSegundos > 0 ? "Duración: " + p.duracionSegundos + " s" : "Peticiones: " + p.peticiones)
+            + " | Tasa total: " + p.tasaInicial + (p.tasaFinal > 0 ? " → " + p.tasaFinal : "") + " reg/s"
+            + " | Trabajadores: " + d.trabajadores + "\n");
         
-        // Barra de progreso
-        System.out.print("\n[");
+        CargaDistribuida.Informe informe = CargaDistribuida.coordinar(p, d);
         
-        for (int i = 0; i < 1000; i++) {
-            Map<String, Object> userData = generador.generarUsuarioAleatorio();
-            CompletableFuture<String> future = registrarUsuario(userData)
-                .thenApply(response -> {
-                    try {
-                        Map<String, Object> responseMap = objectMapper.readValue(response, Map.class);
-                        if ("success".equals(responseMap.get("status"))) {
-                            exitosos.incrementAndGet();
-                        } else {
-                            fallidos.incrementAndGet();
-                        }
-                        
-                        int progreso = contador.incrementAndGet();
-                        if (progreso % 50 == 0) {
-                            System.out.print("█");
-                            System.out.flush();
-                        }
-                    } catch (Exception e) {
-                        fallidos.incrementAndGet();
-                    }
-                    return response;
-                });
-            futures.add(future);
+        System.out.println("📋 Por trabajador:");
+        for (int k = 0; k < informe.parciales.size(); k++) {
+            MotorCarga.Resultado r = informe.parciales.get(k);
+            if (r != null) {
+                System.out.printf("   %d. %-30s %8d medidas | %9.2f reg/s | p99 %8.2f ms%n", k + 1,
+                    informe.trabajadores.get(k), r.getMedidas(), r.getThroughput(), r.latencias.percentil(99) / 1000.0);
+            }
         }
+        informe.fallos.forEach(f -> System.out.println("   ❌ " + f));
+        imprimirResultados(informe.total);
+        return informe.fallos.isEmpty();
+    }
+    
+    /**
+     * Modo trabajador sin menú: se conecta al coordinador, ejecuta su parte
+     * de la prueba con este cliente y le devuelve el resultado.
+     */
+    public void ejecutarTrabajador(String host, int puerto) throws IOException {
+        String descripcion = transporte.getDescripcion() + " pid " + ProcessHandle.current().pid();
+        CargaDistribuida.trabajar(host, puerto, descripcion, orden -> {
+            MotorCarga.Parametros p = orden.getCarga();
+            String archivo = configString("loadTest", "resultsFile", "");
+            if (!archivo.isEmpty()) {
+                // Cada trabajador en su propio archivo: nombre-t1.ext, nombre-t2.ext...
+                int punto = archivo.lastIndexOf('.');
+                String sufijo = "-t" + (orden.getIndice() + 1);
+                p.archivoResultados = punto > 0
+                    ? archivo.substring(0, punto) + sufijo + archivo.substring(punto) : archivo + sufijo;
+            }
+            MotorCarga.Resultado r = new MotorCarga(this::registrarUsuario,
+                usuariosDeCarga(orden.getIndice(), orden.getTrabajadores(), orden.getSemilla())).ejecutar(p);
+            System.out.printf("✅ Parte terminada: %d medidas, %.2f reg/s%n", r.getMedidas(), r.getThroughput());
+            return r;
+        });
+    }
+    
+    private void ejecutarPruebaCarga() {
+        MotorCarga.Parametros p = parametrosCarga();
         
-        // Esperar a que terminen todos
-        CompletableFuture<Void> allFutures = CompletableFuture.allOf(
-            futures.toArray(new CompletableFuture[0])
-        );
+        System.out.println("\n╔══════════════════════════════════════╗");
+        System.out.println("║   PRUEBA DE CARGA - LAZO ABIERTO     ║");
+        System.out.println("╚══════════════════════════════════════╝");
+        System.out.println("   " + (p.duracionSegundos > 0 ? "Duración: " + p.duracionSegundos + " s" : "Peticiones: " + p.peticiones)
+            + " | Tasa: " + p.tasaInicial + (p.tasaFinal > 0 ? " → " + p.tasaFinal : "") + " reg/s"
+            + " | Calentamiento: " + p.calentamientoSegundos + " s\n");
         
         try {
-            allFutures.get(5, TimeUnit.MINUTES);
-            System.out.println("]");
-            
-            long endTime = System.currentTimeMillis();
-            long totalTime = endTime - startTime;
-            
-            System.out.println("\n╔══════════════════════════════════════╗");
-            System.out.println("║           RESULTADOS FINALES         ║");
-            System.out.println("╠══════════════════════════════════════╣");
-            System.out.println("║ 📊 Total registros: 1000             ║");
-            System.out.printf("║ ✅ Exitosos: %-23d ║\n", exitosos.get());
-            System.out.printf("║ ❌ Fallidos: %-23d ║\n", fallidos.get());
-            System.out.printf("║ ⏱️  Tiempo total: %-18s ║\n", totalTime + " ms");
-            System.out.printf("║ ⚡ Promedio: %-23s ║\n", String.format("%.2f ms/reg", totalTime / 1000.0));
-            System.out.printf("║ 📈 TPS: %-28s ║\n", String.format("%.2f reg/s", 1000.0 / (totalTime / 1000.0)));
-            System.out.println("╚══════════════════════════════════════╝");
-            
-            // Análisis de errores
-            if (fallidos.get() > 0) {
-                System.out.println("\n📋 Análisis de errores:");
-                Map<String, Integer> tiposError = new HashMap<>();
-                
-                for (CompletableFuture<String> future : futures) {
-                    try {
-                        String response = future.getNow(null);
-                        if (response != null) {
-                            Map<String, Object> responseMap = objectMapper.readValue(response, Map.class);
-                            if ("error".equals(responseMap.get("status"))) {
-                                String mensaje = (String) responseMap.get("message");
-                                tiposError.merge(mensaje, 1, Integer::sum);
-                            }
-                        }
-                    } catch (Exception ignored) {}
-                }
-                
-                tiposError.entrySet().stream()
-                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                    .limit(5)
-                    .forEach(entry -> System.out.println("   • " + entry.getKey() + ": " + entry.getValue()));
+            MotorCarga motor = new MotorCarga(this::registrarUsuario, usuariosDeCarga(0, 1, 0));
+            imprimirResultados(motor.ejecutar(p));
+            if (!p.archivoResultados.isEmpty()) {
+                System.out.println("\n💾 Resultados en " + p.archivoResultados
+                    + " (analizar con --analizar " + p.archivoResultados + ")");
             }
             
         } catch (Exception e) {
@@ -341,51 +908,188 @@ public class Cliente {
         }
     }
     
+    /**
+     * Informe de un archivo de resultados de prueba de carga, sin conectar
+     * con nada: totales, percentiles, errores por categoría y la evolución
+     * en el tiempo.
+     */
+    static void analizarResultados(Path archivo) throws IOException {
+        RegistroResultados.Analisis a = RegistroResultados.analizar(archivo, 60);
+        HistogramaLatencia h = a.latencias;
+        
+        System.out.println("\n╔══════════════════════════════════════╗");
+        System.out.println("║        ANÁLISIS DE RESULTADOS        ║");
+        System.out.println("╠══════════════════════════════════════╣");
+        System.out.printf("║ 📄 Registros: %-22d ║\n", a.registros);
+        System.out.printf("║ 📏 Medidas: %-24d ║\n", a.medidas);
+        System.out.printf("║ ✅ Exitosos: %-23d ║\n", a.exitosos);
+        System.out.printf("║ ❌ Errores: %-24d ║\n", a.errores + a.excepciones);
+        System.out.printf("║ ⌛ Timeouts: %-23d ║\n", a.timeouts);
+        System.out.printf("║ 📈 Throughput: %-21s ║\n", String.format("%.2f reg/s", a.getThroughput()));
+        System.out.printf("║ ⏱️  p50: %-28s ║\n", String.format("%.2f ms", h.percentil(50) / 1000.0));
+        System.out.printf("║ ⏱️  p90: %-28s ║\n", String.format("%.2f ms", h.percentil(90) / 1000.0));
+        System.out.printf("║ ⏱️  p99: %-28s ║\n", String.format("%.2f ms", h.percentil(99) / 1000.0));
+        System.out.printf("║ ⏱️  p99.9: %-26s ║\n", String.format("%.2f ms", h.percentil(99.9) / 1000.0));
+        System.out.printf("║ ⏱️  máx: %-28s ║\n", String.format("%.2f ms", h.getMaximo() / 1000.0));
+        System.out.println("╚══════════════════════════════════════╝");
+        if (!a.completo) {
+            System.out.println("⚠️  La prueba no se cerró correctamente; se analizan los registros presentes");
+        }
+        
+        List<Integer> categorias = new ArrayList<>();
+        for (int id = 1; id < a.erroresPorCategoria.length; id++) {
+            if (a.erroresPorCategoria[id] > 0) {
+                categorias.add(id);
+            }
+        }
+        if (!categorias.isEmpty()) {
+            System.out.println("\n📋 Errores por categoría:");
+            categorias.stream()
+                .sorted((x, y) -> Long.compare(a.erroresPorCategoria[y], a.erroresPorCategoria[x]))
+                .forEach(id -> System.out.println("   • " + a.getCategoria(id) + ": " + a.erroresPorCategoria[id]));
+        }
+        
+        double ancho = a.anchoIntervaloNanos / 1e9;
+        System.out.printf("%n📉 Evolución (intervalos de %.0f s):%n", ancho);
+        System.out.println("      t |  enviadas/s | completadas/s | fallidas |   p50 ms |   p99 ms");
+        for (int i = 0; i < a.intervalos.length; i++) {
+            RegistroResultados.Intervalo t = a.intervalos[i];
+            System.out.printf("  %5.0fs | %11.1f | %13.1f | %8d | %8.2f | %8.2f%n",
+                i * ancho, t.enviadas / ancho, t.completadas / ancho, t.fallidas,
+                t.latencias.percentil(50) / 1000.0, t.latencias.percentil(99) / 1000.0);
+        }
+    }
+    
+    /**
+     * Importa un archivo JSONL o CSV de usuarios pasando cada registro por
+     * registrarUsuario (limitador, rechazo local y métricas incluidos).
+     *
+     * @param reanudar continuar desde el checkpoint del archivo si existe
+     * @return true si todas las líneas se importaron sin errores
+     */
+    public boolean importarUsuarios(Path archivo, boolean reanudar) throws IOException, InterruptedException {
+        ImportadorMasivo.Parametros p = new ImportadorMasivo.Parametros();
+        p.maxEnVuelo = configInt("import", "maxInFlight", 1000);
+        p.archivoFallidos = configString("import", "failuresFile", archivo.getFileName() + ".fallidos.jsonl");
+        p.intervaloCheckpointSegundos = configInt("import", "checkpointSeconds", 5);
+        p.reanudar = reanudar;
+        
+        System.out.println("\n📥 Importando " + archivo + " (" + ImportadorMasivo.formatoDe(archivo)
+            + ", máx. " + p.maxEnVuelo + " en vuelo)");
+        ImportadorMasivo.Resultado r = new ImportadorMasivo(this::registrarUsuario).importar(archivo, p);
+        
+        double segundos = r.nanos / 1e9;
+        System.out.println("\n╔══════════════════════════════════════╗");
+        System.out.println("║        IMPORTACIÓN COMPLETADA        ║");
+        System.out.println("╠══════════════════════════════════════╣");
+        System.out.printf("║ 📄 Líneas: %-25d ║\n", r.lineas);
+        System.out.printf("║ ✅ Exitosos: %-23d ║\n", r.exitosos);
+        System.out.printf("║ ❌ Fallidos: %-23d ║\n", r.fallidos);
+        System.out.printf("║ 📈 Throughput: %-21s ║\n", String.format("%.2f reg/s", (r.exitosos + r.fallidos) / Math.max(segundos, 1e-9)));
+        System.out.println("╚══════════════════════════════════════╝");
+        if (r.fallidos > 0 && !p.archivoFallidos.isEmpty()) {
+            System.out.println("   Fallidos guardados en " + p.archivoFallidos);
+        }
+        return r.fallidos == 0;
+    }
+    
     private void mostrarEstadisticas() {
         System.out.println("\n╔══════════════════════════════════════╗");
         System.out.println("║         ESTADÍSTICAS DEL SISTEMA     ║");
         System.out.println("╠══════════════════════════════════════╣");
         System.out.println("║ 🔌 Estado: Conectado                 ║");
-        System.out.println("║ 🖥️  Host: " + String.format("%-26s", RABBITMQ_HOST) + " ║");
-        System.out.println("║ 🧵 Threads activos: " + String.format("%-16d", ((ThreadPoolExecutor)executorService).getActiveCount()) + " ║");
-        System.out.println("║ 📬 Respuestas pendientes: " + String.format("%-10d", pendingResponses.size()) + " ║");
+        System.out.println("║ 🖥️  " + String.format("%-32s", transporte.getDescripcion()) + " ║");
+        System.out.println("║ 🧵 Modo: " + String.format("%-27s", VIRTUAL_THREADS ? "hilos virtuales" : "pool (" + THREAD_POOL_SIZE + " hilos)") + " ║");
+        if (!ASYNC_REQUESTS) {
+            // En modo asíncrono no hay tareas esperando: lo que hay en vuelo son las respuestas pendientes
+            System.out.println("║ ⚙️  Tareas activas: " + String.format("%-17d", tareasActivas.get()) + " ║");
+        }
+        System.out.println("║ 📬 Respuestas pendientes: " + String.format("%-10d", pendientes.getEnVuelo()) + " ║");
+        if (limitador != null) {
+            System.out.println("║ 🚦 Límite de concurrencia: " + String.format("%-9d", limitador.getLimite()) + " ║");
+            System.out.println("║ ⏳ En cola / rechazadas: " + String.format("%-11s", limitador.getEncoladas() + " / " + limitador.getRechazadas()) + " ║");
+        }
+        System.out.println("╠══════════════════════════════════════╣");
+        System.out.println("║ ✅ Exitosos: " + String.format("%-23d", metricas.getExitos()) + " ║");
+        System.out.println("║ ❌ Errores: " + String.format("%-24d", metricas.getErrores()) + " ║");
+        System.out.println("║ ⌛ Timeouts: " + String.format("%-23d", metricas.getTimeouts()) + " ║");
+        if (indiceDni != null) {
+            System.out.println("║ 🛑 Duplicados rechazados: " + String.format("%-10d", metricas.getRechazosLocales()) + " ║");
+        }
+        System.out.println("║ 🔍 Caché aciertos/fallos: " + String.format("%-10s", cacheConsultas.getAciertos() + " / " + cacheConsultas.getFallos()) + " ║");
+        System.out.println("╠═══════════ p50 / p99 (ms) ═══════════╣");
+        imprimirEtapa("Serialización", metricas.getSerializacion());
+        imprimirEtapa("Publicación", metricas.getPublicacion());
+        imprimirEtapa("1ª respuesta", metricas.getPrimeraRespuesta());
+        imprimirEtapa("Total", metricas.getTotal());
         System.out.println("╚══════════════════════════════════════╝");
+        
+        Map<String, Long> categorias = metricas.getErroresPorCategoria();
+        if (!categorias.isEmpty()) {
+            System.out.println("\n📋 Errores por categoría:");
+            categorias.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue(), a.getValue()))
+                .limit(5)
+                .forEach(entry -> System.out.println("   • " + entry.getKey() + ": " + entry.getValue()));
+        }
+    }
+    
+    private static void imprimirEtapa(String etapa, HistogramaLatencia h) {
+        String valores = String.format("%.2f / %.2f", h.percentil(50) / 1000.0, h.percentil(99) / 1000.0);
+        System.out.println("║ " + String.format("%-14s", etapa) + String.format("%22s", valores) + " ║");
     }
     
     private void buscarUsuario(Scanner scanner) {
         System.out.print("\n🔍 Ingrese DNI a buscar: ");
-        String dni = scanner.nextLine();
+        String dni = scanner.nextLine().trim();
+        if (dni.length() != 8) {
+            System.out.println("❌ DNI debe tener 8 dígitos");
+            return;
+        }
         
-        // Esta funcionalidad requeriría una nueva cola/exchange para consultas
-        System.out.println("⚠️  Funcionalidad de búsqueda no implementada en esta versión");
+        try {
+            long inicio = System.nanoTime();
+            ResultadoConsulta r = buscarDni(dni).get();
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - inicio);
+            
+            if (r.esEncontrado()) {
+                System.out.println("\n✅ " + r.getNombre() + " " + r.getApellidos());
+                System.out.println("   📍 Lugar de nacimiento: " + r.getLugarNacimiento());
+                System.out.println("   🏠 Dirección: " + r.getDireccion());
+            } else if (r.esNoEncontrado()) {
+                System.out.println("\n❌ DNI " + dni + " no encontrado en BD2");
+            } else {
+                System.out.println("\n❌ Error: " + r.getMensaje());
+            }
+            System.out.printf("⏱️  Tiempo de respuesta: %.2f ms%n", micros / 1000.0);
+        } catch (Exception e) {
+            System.err.println("❌ Error en búsqueda: " + e.getMessage());
+        }
     }
     
-    @SuppressWarnings("unchecked")
     private void generarUsuarioAleatorio() {
-        GeneradorDatos generador = new GeneradorDatos();
-        Map<String, Object> usuario = generador.generarUsuarioAleatorio();
+        RegistroUsuario usuario = new GeneradorDatos().generar(0);
         
         System.out.println("\n🎲 Usuario generado aleatoriamente:");
-        System.out.println("   Nombre: " + usuario.get("nombre"));
-        System.out.println("   Correo: " + usuario.get("correo"));
-        System.out.println("   DNI: " + usuario.get("dni"));
-        System.out.println("   Teléfono: " + usuario.get("telefono"));
-        if (usuario.containsKey("amigos")) {
-            System.out.println("   Amigos: " + usuario.get("amigos"));
+        System.out.println("   Nombre: " + usuario.getNombre());
+        System.out.println("   Correo: " + usuario.getCorreo());
+        System.out.println("   DNI: " + usuario.getDni());
+        System.out.println("   Teléfono: " + usuario.getTelefono());
+        if (usuario.getAmigos() != null) {
+            System.out.println("   Amigos: " + usuario.getAmigos());
         }
         
         System.out.print("\n¿Desea registrar este usuario? (S/N): ");
         Scanner scanner = new Scanner(System.in);
         if (scanner.nextLine().equalsIgnoreCase("S")) {
             try {
-                CompletableFuture<String> future = registrarUsuario(usuario);
-                String response = future.get();
-                Map<String, Object> responseMap = objectMapper.readValue(response, Map.class);
+                CompletableFuture<ResultadoRegistro> future = registrarUsuario(usuario);
+                ResultadoRegistro response = future.get();
                 
-                if ("success".equals(responseMap.get("status"))) {
-                    System.out.println("✅ " + responseMap.get("message"));
+                if (response.esExitoso()) {
+                    System.out.println("✅ " + response.getMensaje());
                 } else {
-                    System.out.println("❌ " + responseMap.get("message"));
+                    System.out.println("❌ " + response.getMensaje());
                 }
             } catch (Exception e) {
                 System.err.println("❌ Error: " + e.getMessage());
@@ -397,23 +1101,116 @@ public class Cliente {
         try {
             System.out.println("\n🔌 Cerrando conexiones...");
             executorService.shutdown();
-            channel.close();
-            connection.close();
+            timeoutScheduler.shutdownNow();
+            metricas.detenerHttp();
+            if (indiceDni != null) {
+                indiceDni.close();
+            }
+            transporte.close();
+            if (despachador != null) {
+                despachador.shutdown();
+            }
             System.out.println("✅ Conexiones cerradas correctamente");
         } catch (Exception e) {
             System.err.println("❌ Error al cerrar conexiones: " + e.getMessage());
         }
     }
     
+    /**
+     * Mide el arranque hasta el primer registro exitoso: envía usuarios
+     * generados de uno en uno hasta que alguno se registra o se agotan los
+     * intentos. Es también la ejecución de entrenamiento del archivo CDS
+     * (perfil cds del pom y Dockerfile), así que al terminar inicializa las
+     * clases del transporte AMQP aunque se haya medido con loopback.
+     */
+    private static boolean medirArranque(long inicioMain, int intentos) throws Exception {
+        Cliente cliente = new Cliente();
+        long listo = System.nanoTime();
+        Supplier<RegistroUsuario> usuarios = new GeneradorDatos(parametrosGenerador()).secuencia(0, 1);
+        long primeraRespuesta = 0;
+        long primerExito = 0;
+        int enviados = 0;
+        while (primerExito == 0 && enviados < intentos) {
+            ResultadoRegistro r = cliente.registrarUsuario(usuarios.get()).get();
+            enviados++;
+            long ahora = System.nanoTime();
+            if (primeraRespuesta == 0 && r != ResultadoRegistro.TIMEOUT) {
+                primeraRespuesta = ahora;
+            }
+            if (r.esExitoso()) {
+                primerExito = ahora;
+            }
+        }
+        // El uptime cuenta desde que arrancó la JVM; restándole lo transcurrido desde main queda lo anterior a main
+        double jvmHastaMain = ManagementFactory.getRuntimeMXBean().getUptime() - (System.nanoTime() - inicioMain) / 1e6;
+        TransporteAmqp.precalentar();
+        
+        System.out.println("\n⏱️  ARRANQUE (" + cliente.transporte.getDescripcion() + ")");
+        System.out.println("──────────────────────────────────────");
+        System.out.printf("   JVM hasta main:              %8.1f ms%n", Math.max(0, jvmHastaMain));
+        System.out.printf("   Configuración:               %8.1f ms%n", (CONFIG_LOADED_NANOS - inicioMain) / 1e6);
+        System.out.printf("   Conexión y calentamiento:    %8.1f ms%n", (listo - CONFIG_LOADED_NANOS) / 1e6);
+        if (primeraRespuesta != 0) {
+            System.out.printf("   Primera respuesta:           %8.1f ms%n", (primeraRespuesta - listo) / 1e6);
+        }
+        if (primerExito != 0) {
+            System.out.printf("   Primer registro exitoso:     %8.1f ms (%d envío(s))%n", (primerExito - listo) / 1e6, enviados);
+            System.out.printf("   Total desde main:            %8.1f ms%n", (primerExito - inicioMain) / 1e6);
+        } else {
+            System.out.println("   ❌ Ningún registro exitoso en " + enviados + " intento(s)");
+        }
+        cliente.cerrarConexiones();
+        return primerExito != 0;
+    }
+    
     public static void main(String[] args) {
+        long inicioMain = System.nanoTime();
         try {
             System.out.println("╔══════════════════════════════════════╗");
             System.out.println("║   CLIENTE DE REGISTRO - SISTEMA      ║");
             System.out.println("║          DISTRIBUIDO v1.0            ║");
             System.out.println("╚══════════════════════════════════════╝");
             
+            // Análisis de un archivo de resultados, sin conectar: --analizar archivo
+            if (args.length > 1 && args[0].equals("--analizar")) {
+                analizarResultados(Paths.get(args[1]));
+                return;
+            }
+            
+            // Coordinador de prueba distribuida, sin conectar: --coordinador [trabajadores]
+            if (args.length > 0 && args[0].equals("--coordinador")) {
+                loadConfig();
+                boolean completa = coordinarCarga(args.length > 1 ? Integer.parseInt(args[1]) : 0);
+                System.exit(completa ? 0 : 1);
+            }
+            
+            // Medición del arranque hasta el primer registro exitoso: --medir-arranque [intentos]
+            if (args.length > 0 && args[0].equals("--medir-arranque")) {
+                boolean exito = medirArranque(inicioMain, args.length > 1 ? Integer.parseInt(args[1]) : 100);
+                System.exit(exito ? 0 : 1);
+            }
+            
             Cliente cliente = new Cliente();
             
+            // Trabajador de prueba distribuida: --trabajador [host[:puerto]]
+            if (args.length > 0 && args[0].equals("--trabajador")) {
+                String destino = args.length > 1 ? args[1] : "127.0.0.1";
+                int dosPuntos = destino.lastIndexOf(':');
+                int puerto = dosPuntos > 0 ? Integer.parseInt(destino.substring(dosPuntos + 1))
+                    : configInt("distributed", "port", 7070);
+                cliente.ejecutarTrabajador(dosPuntos > 0 ? destino.substring(0, dosPuntos) : destino, puerto);
+                cliente.cerrarConexiones();
+                System.exit(0);
+            }
+            
+            // Importación masiva no interactiva: --importar archivo [--desde-cero]
+            if (args.length > 1 && args[0].equals("--importar")) {
+                boolean desdeCero = args.length > 2 && args[2].equals("--desde-cero");
+                boolean completa = cliente.importarUsuarios(Paths.get(args[1]), !desdeCero);
+                cliente.cerrarConexiones();
+                System.exit(completa ? 0 : 1);
+            }
+            
             // Verificar si hay argumentos para modo GUI
             if (args.length > 0 && args[0].equals("--gui")) {
                 System.out.println("🖼️  Modo GUI no implementado en esta versión");
@@ -0,0 +1,109 @@
+package com.mycompany.cliente.java;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Codificación de los mensajes que intercambia el cliente.
+ *
+ * El ObjectWriter y el ObjectReader se construyen una sola vez, y cada hilo
+ * serializa sobre su propio ByteArrayBuilder reutilizable, de modo que una
+ * solicitud pasa de objeto a byte[] UTF-8 sin String intermedio ni buffers
+ * nuevos en cada llamada.
+ *
+ * Los hilos virtuales suelen vivir una sola tarea, y un buffer por hilo se
+ * crearía y tiraría en cada una; esos hilos toman prestado el buffer de un
+ * pequeño pool compartido.
+ */
+public final class CodecMensajes {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final JsonFactory FACTORY = MAPPER.getFactory();
+    private static final ObjectWriter ESCRITOR_REGISTRO = MAPPER.writerFor(RegistroUsuario.class);
+    private static final ObjectReader LECTOR_REGISTRO = MAPPER.readerFor(RegistroUsuario.class);
+    private static final ObjectReader LECTOR_CONSULTA = MAPPER.readerFor(ResultadoConsulta.class);
+    private static final int TAMANO_BUFFER = 512;
+    private static final ThreadLocal<ByteArrayBuilder> BUFFER =
+        ThreadLocal.withInitial(() -> new ByteArrayBuilder(TAMANO_BUFFER));
+    private static final BlockingQueue<ByteArrayBuilder> BUFFERS_VIRTUALES = new ArrayBlockingQueue<>(64);
+
+    private CodecMensajes() {
+    }
+
+    public static byte[] codificar(RegistroUsuario registro) throws IOException {
+        ByteArrayBuilder buffer = tomarBuffer();
+        try {
+            ESCRITOR_REGISTRO.writeValue(buffer, registro);
+            return buffer.toByteArray();
+        } finally {
+            devolverBuffer(buffer);
+        }
+    }
+
+    public static RegistroUsuario leerRegistro(byte[] datos, int desde, int longitud) throws IOException {
+        return LECTOR_REGISTRO.readValue(datos, desde, longitud);
+    }
+
+    /** Cuerpo de una consulta de DNI: {"dni":"..."}. */
+    public static byte[] codificarConsulta(String dni) throws IOException {
+        ByteArrayBuilder buffer = tomarBuffer();
+        try {
+            try (JsonGenerator generador = FACTORY.createGenerator(buffer)) {
+                generador.writeStartObject();
+                generador.writeStringField("dni", dni);
+                generador.writeEndObject();
+            }
+            return buffer.toByteArray();
+        } finally {
+            devolverBuffer(buffer);
+        }
+    }
+
+    private static ByteArrayBuilder tomarBuffer() {
+        if (!Thread.currentThread().isVirtual()) {
+            return BUFFER.get();
+        }
+        ByteArrayBuilder buffer = BUFFERS_VIRTUALES.poll();
+        return buffer != null ? buffer : new ByteArrayBuilder(TAMANO_BUFFER);
+    }
+
+    private static void devolverBuffer(ByteArrayBuilder buffer) {
+        buffer.reset();
+        if (Thread.currentThread().isVirtual()) {
+            // Con el pool lleno el buffer sobrante se descarta
+            BUFFERS_VIRTUALES.offer(buffer);
+        }
+    }
+
+    public static ResultadoConsulta leerConsulta(byte[] cuerpo) throws IOException {
+        return LECTOR_CONSULTA.readValue(cuerpo);
+    }
+
+    /** Respuesta arbitraria (mapas y listas), como las que envían LP1 y LP2. */
+    static byte[] escribir(Object valor) {
+        try {
+            return MAPPER.writeValueAsBytes(valor);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Objeto JSON genérico, como config.json; evita crear e inicializar otro ObjectMapper. */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> leerMapa(byte[] datos) throws IOException {
+        return MAPPER.readValue(datos, Map.class);
+    }
+
+    static JsonParser parser(byte[] cuerpo) throws IOException {
+        return FACTORY.createParser(cuerpo);
+    }
+}
@@ -0,0 +1,215 @@
+package com.mycompany.cliente.java;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Conjuntos de usuarios pregenerados en un archivo JSON Lines (un
+ * RegistroUsuario por línea, tal como se publica), para repetir
+ * exactamente la misma carga entre ejecuciones o entre máquinas.
+ */
+public final class DatasetUsuarios {
+
+    private DatasetUsuarios() {
+    }
+
+    /** Escribe los n primeros usuarios del generador en el archivo. */
+    public static long escribir(Path archivo, GeneradorDatos generador, long n) throws IOException {
+        try (OutputStream salida = new BufferedOutputStream(Files.newOutputStream(archivo), 1 << 16)) {
+            for (long i = 0; i < n; i++) {
+                salida.write(CodecMensajes.codificar(generador.generar(i)));
+                salida.write('\n');
+            }
+        }
+        return n;
+    }
+
+    /** Recorre el archivo línea a línea sin cargarlo entero; las líneas vacías se saltan. */
+    public static Lector leer(Path archivo) throws IOException {
+        return new Lector(Files.newInputStream(archivo));
+    }
+
+    /**
+     * Proveedor para MotorCarga que entrega los usuarios del archivo en
+     * orden y vuelve a empezar al llegar al final.
+     */
+    public static Supplier<RegistroUsuario> reproducir(Path archivo) throws IOException {
+        return reproducir(archivo, 0, 1);
+    }
+
+    /**
+     * Como {@link #reproducir(Path)}, pero sólo con las líneas desde,
+     * desde + paso, desde + 2·paso... (contando las no vacías). Las demás
+     * se saltan sin decodificarlas, y al volver a empezar se retoma desde la
+     * misma línea, así que los repartos (k, n) para k = 0..n-1 nunca
+     * entregan el mismo usuario aunque el archivo no tenga un múltiplo de n
+     * líneas.
+     */
+    public static Supplier<RegistroUsuario> reproducir(Path archivo, long desde, long paso) throws IOException {
+        ReentrantLock cerrojo = new ReentrantLock();
+        Lector[] actual = {leer(archivo)};
+        if (actual[0].saltar(desde) < desde || !actual[0].hasNext()) {
+            actual[0].close();
+            throw new IOException(archivo + " no contiene usuarios" + (desde > 0 ? " a partir de la línea " + (desde + 1) : ""));
+        }
+        return () -> {
+            cerrojo.lock();
+            try {
+                if (!actual[0].hasNext()) {
+                    actual[0].close();
+                    actual[0] = leer(archivo);
+                    actual[0].saltar(desde);
+                }
+                RegistroUsuario usuario = actual[0].next();
+                actual[0].saltar(paso - 1);
+                return usuario;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                cerrojo.unlock();
+            }
+        };
+    }
+
+    /**
+     * Iterador sobre las líneas del archivo. El archivo se lee por bloques
+     * de 64 KB y cada línea se decodifica directamente desde el bloque, sin
+     * pasar por String ni copiarla; sólo una línea más larga que el bloque
+     * obliga a agrandarlo.
+     */
+    public static final class Lector implements Iterator<RegistroUsuario>, Closeable {
+        private final InputStream entrada;
+        private byte[] datos = new byte[1 << 16];
+        /** Primer byte aún no consumido y fin de lo leído. */
+        private int inicio;
+        private int limite;
+        /** Línea pendiente de entregar: datos[desde, desde + longitud). */
+        private int desde;
+        private int longitud;
+        private boolean pendiente;
+        private boolean fin;
+        private long numeroLinea;
+
+        Lector(InputStream entrada) {
+            this.entrada = entrada;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!pendiente && !fin) {
+                try {
+                    avanzar();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return pendiente;
+        }
+
+        @Override
+        public RegistroUsuario next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            pendiente = false;
+            try {
+                return CodecMensajes.leerRegistro(datos, desde, longitud);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Línea " + numeroLinea + " ilegible", e);
+            }
+        }
+
+        /**
+         * Descarta las n siguientes líneas no vacías buscando sólo los
+         * saltos de línea, sin decodificarlas.
+         *
+         * @return las que se saltaron; menos de n si se llegó al final
+         */
+        public long saltar(long n) {
+            for (long i = 0; i < n; i++) {
+                if (!hasNext()) {
+                    return i;
+                }
+                pendiente = false;
+            }
+            return n;
+        }
+
+        /** Número de la última línea leída, empezando en 1. */
+        public long getNumeroLinea() {
+            return numeroLinea;
+        }
+
+        private void avanzar() throws IOException {
+            int buscado = inicio;
+            while (true) {
+                int finLinea = -1;
+                for (int i = buscado; i < limite; i++) {
+                    if (datos[i] == '\n') {
+                        finLinea = i;
+                        break;
+                    }
+                }
+                if (finLinea < 0) {
+                    int yaBuscado = limite - inicio;
+                    if (leerBloque()) {
+                        buscado = inicio + yaBuscado;
+                        continue;
+                    }
+                    if (inicio == limite) {
+                        fin = true;
+                        return;
+                    }
+                    // Última línea sin salto final
+                    finLinea = limite;
+                }
+                desde = inicio;
+                longitud = finLinea - inicio;
+                inicio = Math.min(finLinea + 1, limite);
+                buscado = inicio;
+                numeroLinea++;
+                if (longitud > 0 && datos[desde + longitud - 1] == '\r') {
+                    longitud--;
+                }
+                if (longitud > 0) {
+                    pendiente = true;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Mueve lo que queda sin consumir al principio del buffer, lo agranda
+         * si ya está lleno con una sola línea y lee a continuación.
+         *
+         * @return false al final del archivo
+         */
+        private boolean leerBloque() throws IOException {
+            if (inicio > 0) {
+                System.arraycopy(datos, inicio, datos, 0, limite - inicio);
+                limite -= inicio;
+                inicio = 0;
+            }
+            if (limite == datos.length) {
+                datos = Arrays.copyOf(datos, datos.length * 2);
+            }
+            int leidos = entrada.read(datos, limite, datos.length - limite);
+            if (leidos < 0) {
+                return false;
+            }
+            limite += leidos;
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            entrada.close();
+        }
+    }
+}
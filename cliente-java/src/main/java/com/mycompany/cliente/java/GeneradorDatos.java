@@ -1,63 +1,267 @@
 package com.mycompany.cliente.java;
 
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
 
+/**
+ * Generador de usuarios para pruebas de carga.
+ *
+ * El usuario número i se obtiene sólo a partir de (semilla, i), sembrando
+ * con ellos un SplitMix64 local. El índice lo lleva quien llama, con
+ * {@link #generar(long)} o con una {@link #secuencia} propia de cada hilo,
+ * así que no hay ni un Random ni un contador compartido que los hilos se
+ * disputen y, con una semilla fija, el usuario i es el mismo en cada
+ * ejecución sea cual sea el número de hilos.
+ *
+ * Distribuciones de DNI:
+ * <ul>
+ *   <li>LEGADO: 70 % de los cinco DNIs válidos de BD2 y 30 % al azar (el
+ *       comportamiento original)</li>
+ *   <li>SECUENCIAL: dniBase + i, todos distintos</li>
+ *   <li>UNIFORME y ZIPF: sobre una población de N DNIs, donde los primeros
+ *       son los válidos de BD2 y el resto dniBase + k; con Zipf la
+ *       frecuencia del k-ésimo decae como 1/k^s</li>
+ * </ul>
+ * El número de amigos es 0 con probabilidad 1 - probabilidadAmigos y si no
+ * sigue una distribución uniforme o geométrica entre 1 y maxAmigos; los
+ * amigos se eligen sin repetición entre los DNIs válidos de BD2.
+ */
 public class GeneradorDatos {
-    private final Random random = new Random();
-    private final String[] nombres = {"Juan", "Maria", "Carlos", "Ana", "Luis", "Carmen", "Pedro", "Rosa", "Miguel", "Laura"};
-    private final String[] apellidos = {"Garcia", "Lopez", "Martinez", "Rodriguez", "Perez", "Gonzalez", "Sanchez", "Ramirez", "Torres", "Flores"};
-    private final String[] dominios = {"gmail.com", "hotmail.com", "yahoo.com", "outlook.com"};
-    
+
+    public enum DistribucionDni { LEGADO, SECUENCIAL, UNIFORME, ZIPF }
+
+    public enum DistribucionAmigos { UNIFORME, GEOMETRICA }
+
+    public static final class Parametros {
+        /** Cero para una semilla distinta en cada ejecución. */
+        long semilla = 0;
+        DistribucionDni distribucionDni = DistribucionDni.LEGADO;
+        long poblacion = 100_000;
+        double exponenteZipf = 1.1;
+        int dniBase = 30_000_000;
+        double probabilidadAmigos = 0.3;
+        DistribucionAmigos distribucionAmigos = DistribucionAmigos.UNIFORME;
+        int maxAmigos = 3;
+        /** Media de la geométrica, contando sólo a los usuarios con amigos. */
+        double mediaAmigos = 1.5;
+    }
+
+    private static final String[] NOMBRES = {"Juan", "Maria", "Carlos", "Ana", "Luis", "Carmen", "Pedro", "Rosa", "Miguel", "Laura"};
+    private static final String[] APELLIDOS = {"Garcia", "Lopez", "Martinez", "Rodriguez", "Perez", "Gonzalez", "Sanchez", "Ramirez", "Torres", "Flores"};
+    private static final String[] DOMINIOS = {"@gmail.com", "@hotmail.com", "@yahoo.com", "@outlook.com"};
+    private static final String[] NOMBRES_COMPLETOS = new String[NOMBRES.length * APELLIDOS.length];
+    private static final String[] PREFIJOS_CORREO = new String[NOMBRES.length * APELLIDOS.length];
+
     // DNIs válidos para pruebas
-    private final String[] dnisValidos = {"20453629", "12345678", "87654321", "11111111", "22222222"};
-    
-    public Map<String, Object> generarUsuarioAleatorio() {
-        Map<String, Object> usuario = new HashMap<>();
-        
-        String nombre = nombres[random.nextInt(nombres.length)];
-        String apellido = apellidos[random.nextInt(apellidos.length)];
-        
-        usuario.put("nombre", nombre + " " + apellido);
-        usuario.put("correo", generarCorreo(nombre, apellido));
-        usuario.put("clave", generarClave());
-        usuario.put("dni", generarDNI());
-        usuario.put("telefono", generarTelefono());
-        
-        // 30% de probabilidad de tener amigos
-        if (random.nextDouble() < 0.3) {
-            List<String> amigos = new ArrayList<>();
-            int numAmigos = random.nextInt(3) + 1;
-            for (int i = 0; i < numAmigos; i++) {
-                String amigoDni = dnisValidos[random.nextInt(dnisValidos.length)];
-                if (!amigos.contains(amigoDni)) {
-                    amigos.add(amigoDni);
-                }
+    private static final String[] DNIS_VALIDOS = {"20453629", "12345678", "87654321", "11111111", "22222222"};
+
+    static {
+        for (int n = 0; n < NOMBRES.length; n++) {
+            for (int a = 0; a < APELLIDOS.length; a++) {
+                NOMBRES_COMPLETOS[n * APELLIDOS.length + a] = NOMBRES[n] + " " + APELLIDOS[a];
+                PREFIJOS_CORREO[n * APELLIDOS.length + a] = NOMBRES[n].toLowerCase() + "." + APELLIDOS[a].toLowerCase();
             }
-            usuario.put("amigos", amigos);
         }
-        
+    }
+
+    private final Parametros p;
+    private final long semilla;
+    private final Zipf zipf;
+
+    public GeneradorDatos() {
+        this(new Parametros());
+    }
+
+    public GeneradorDatos(Parametros p) {
+        this.p = p;
+        this.semilla = p.semilla != 0 ? p.semilla : ThreadLocalRandom.current().nextLong();
+        this.zipf = p.distribucionDni == DistribucionDni.ZIPF ? new Zipf(Math.max(1, p.poblacion), p.exponenteZipf) : null;
+    }
+
+    /**
+     * Los usuarios desde, desde + paso, desde + 2·paso... El índice vive en
+     * el propio Supplier, que no es seguro entre hilos: cada hilo usa el
+     * suyo, y las secuencias (k, n) para k = 0..n-1 se reparten sin solaparse
+     * la que recorrería un único consumidor.
+     */
+    public Supplier<RegistroUsuario> secuencia(long desde, long paso) {
+        long[] siguiente = {desde};
+        return () -> {
+            long i = siguiente[0];
+            siguiente[0] += paso;
+            return generar(i);
+        };
+    }
+
+    /** Usuario número i de la secuencia; la misma semilla da siempre el mismo. */
+    public RegistroUsuario generar(long i) {
+        // Se mezcla el índice para que los flujos de usuarios consecutivos no se solapen
+        SplitMix rnd = new SplitMix(SplitMix.mezclar(semilla + i * 0x9E3779B97F4A7C15L));
+        RegistroUsuario usuario = new RegistroUsuario();
+
+        int persona = rnd.nextInt(NOMBRES_COMPLETOS.length);
+        usuario.setNombre(NOMBRES_COMPLETOS[persona]);
+        usuario.setCorreo(PREFIJOS_CORREO[persona] + rnd.nextInt(1000) + DOMINIOS[rnd.nextInt(DOMINIOS.length)]);
+        usuario.setClave(conCeros("pass", 1000 + rnd.nextInt(9000), 4));
+        usuario.setDni(generarDni(rnd, i));
+        usuario.setTelefono(conCeros("9", 10000000 + rnd.nextInt(90000000), 8));
+        usuario.setAmigos(generarAmigos(rnd));
         return usuario;
     }
-    
-    private String generarCorreo(String nombre, String apellido) {
-        String dominio = dominios[random.nextInt(dominios.length)];
-        return nombre.toLowerCase() + "." + apellido.toLowerCase() + 
-               random.nextInt(1000) + "@" + dominio;
+
+    private String generarDni(SplitMix rnd, long i) {
+        switch (p.distribucionDni) {
+            case SECUENCIAL:
+                return dni(p.dniBase + i % (100_000_000L - p.dniBase));
+            case UNIFORME:
+                return dniDePoblacion(rnd.nextLong(Math.max(1, p.poblacion)));
+            case ZIPF:
+                return dniDePoblacion(zipf.muestra(rnd) - 1);
+            default:
+                // 70% usa DNI válido, 30% genera uno nuevo
+                if (rnd.nextDouble() < 0.7) {
+                    return DNIS_VALIDOS[rnd.nextInt(DNIS_VALIDOS.length)];
+                }
+                return dni(10000000 + rnd.nextInt(90000000));
+        }
+    }
+
+    /** El k-ésimo DNI de la población: primero los válidos de BD2, luego dniBase + k. */
+    private String dniDePoblacion(long k) {
+        if (k < DNIS_VALIDOS.length) {
+            return DNIS_VALIDOS[(int) k];
+        }
+        return dni((p.dniBase + k) % 100_000_000L);
+    }
+
+    private List<String> generarAmigos(SplitMix rnd) {
+        if (p.maxAmigos <= 0 || rnd.nextDouble() >= p.probabilidadAmigos) {
+            return null;
+        }
+        int maximo = Math.min(p.maxAmigos, DNIS_VALIDOS.length);
+        int cantidad;
+        if (p.distribucionAmigos == DistribucionAmigos.GEOMETRICA) {
+            // Geométrica desde 1 con media mediaAmigos
+            double q = 1 - 1 / Math.max(1.0, p.mediaAmigos);
+            cantidad = q <= 0 ? 1 : 1 + (int) (Math.log(1 - rnd.nextDouble()) / Math.log(q));
+            cantidad = Math.min(cantidad, maximo);
+        } else {
+            cantidad = 1 + rnd.nextInt(maximo);
+        }
+
+        // Fisher-Yates parcial sobre los índices: amigos sin repetir
+        int[] indices = {0, 1, 2, 3, 4};
+        List<String> amigos = new ArrayList<>(cantidad);
+        for (int j = 0; j < cantidad; j++) {
+            int elegido = j + rnd.nextInt(indices.length - j);
+            int t = indices[j];
+            indices[j] = indices[elegido];
+            indices[elegido] = t;
+            amigos.add(DNIS_VALIDOS[indices[j]]);
+        }
+        return amigos;
     }
-    
-    private String generarClave() {
-        return "pass" + (random.nextInt(9000) + 1000);
+
+    private static String dni(long valor) {
+        return conCeros("", valor, 8);
     }
-    
-    private String generarDNI() {
-        // 70% usa DNI válido, 30% genera uno nuevo
-        if (random.nextDouble() < 0.7) {
-            return dnisValidos[random.nextInt(dnisValidos.length)];
+
+    /** prefijo + valor con ceros a la izquierda hasta digitos cifras, sin concatenaciones intermedias. */
+    private static String conCeros(String prefijo, long valor, int digitos) {
+        char[] c = new char[prefijo.length() + digitos];
+        prefijo.getChars(0, prefijo.length(), c, 0);
+        for (int k = c.length - 1; k >= prefijo.length(); k--) {
+            c[k] = (char) ('0' + valor % 10);
+            valor /= 10;
         }
-        return String.valueOf(10000000 + random.nextInt(90000000));
+        return new String(c);
     }
-    
-    private String generarTelefono() {
-        return "9" + (10000000 + random.nextInt(90000000));
+
+    /** SplitMix64: generador de un solo long de estado, sin sincronización. */
+    static final class SplitMix {
+        private long estado;
+
+        SplitMix(long semilla) {
+            this.estado = semilla;
+        }
+
+        long nextLong() {
+            return mezclar(estado += 0x9E3779B97F4A7C15L);
+        }
+
+        static long mezclar(long z) {
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+
+        int nextInt(int limite) {
+            return (int) (((nextLong() >>> 32) * limite) >>> 32);
+        }
+
+        long nextLong(long limite) {
+            return Math.floorMod(nextLong(), limite);
+        }
+
+        double nextDouble() {
+            return (nextLong() >>> 11) * 0x1.0p-53;
+        }
+    }
+
+    /**
+     * Muestreo de Zipf en [1, n] por rechazo-inversión (Hörmann y
+     * Derflinger, 1996): coste constante por muestra y sin tablas, válido
+     * para poblaciones de millones y cualquier exponente positivo.
+     */
+    static final class Zipf {
+        private final long n;
+        private final double exponente;
+        private final double hIntegralX1;
+        private final double hIntegralN;
+        private final double s;
+
+        Zipf(long n, double exponente) {
+            this.n = n;
+            this.exponente = exponente;
+            this.hIntegralX1 = hIntegral(1.5) - 1;
+            this.hIntegralN = hIntegral(n + 0.5);
+            this.s = 2 - hIntegralInversa(hIntegral(2.5) - h(2));
+        }
+
+        long muestra(SplitMix rnd) {
+            while (true) {
+                double u = hIntegralN + rnd.nextDouble() * (hIntegralX1 - hIntegralN);
+                double x = hIntegralInversa(u);
+                long k = Math.max(1, Math.min(n, (long) (x + 0.5)));
+                if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                    return k;
+                }
+            }
+        }
+
+        private double h(double x) {
+            return Math.exp(-exponente * Math.log(x));
+        }
+
+        private double hIntegral(double x) {
+            double logX = Math.log(x);
+            return auxiliar2((1 - exponente) * logX) * logX;
+        }
+
+        private double hIntegralInversa(double x) {
+            double t = Math.max(-1, x * (1 - exponente));
+            return Math.exp(auxiliar1(t) * x);
+        }
+
+        /** log1p(x) / x, estable cerca de 0. */
+        private static double auxiliar1(double x) {
+            return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+        }
+
+        /** expm1(x) / x, estable cerca de 0. */
+        private static double auxiliar2(double x) {
+            return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,159 @@
+package com.mycompany.cliente.java;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latencias al estilo HDR: buckets log-lineales con 64
+ * sub-buckets por potencia de dos, lo que da un error relativo por debajo
+ * del 1,6 % en todo el rango. Los valores se registran en microsegundos.
+ *
+ * El registro es lock-free (un incremento atómico por muestra), así que
+ * varios hilos pueden registrar a la vez mientras otro lee percentiles.
+ * Dos histogramas se pueden fusionar sin pérdida porque comparten la
+ * misma disposición de buckets.
+ */
+public class HistogramaLatencia {
+    private static final int BITS_SUB = 7;
+    private static final int SUB_BUCKETS = 1 << BITS_SUB;
+    private static final int MITAD_SUB = SUB_BUCKETS / 2;
+    /** Los valores mayores de 2^40 µs (unos 12 días) se acumulan en el último bucket. */
+    private static final int BIT_MAXIMO = 40;
+    private static final long VALOR_MAXIMO = (1L << BIT_MAXIMO) - 1;
+    static final int NUM_BUCKETS = indice(VALOR_MAXIMO) + 1;
+
+    private final AtomicLongArray cuentas = new AtomicLongArray(NUM_BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder suma = new LongAdder();
+    private final AtomicLong maximo = new AtomicLong();
+
+    static int indice(long valor) {
+        if (valor < SUB_BUCKETS) {
+            return (int) Math.max(0, valor);
+        }
+        int grupo = (63 - Long.numberOfLeadingZeros(valor)) - (BITS_SUB - 1);
+        return grupo * MITAD_SUB + (int) (valor >>> grupo);
+    }
+
+    /** Mayor valor que cae en el bucket, el que se reporta para los percentiles. */
+    static long valorSuperior(int indice) {
+        if (indice < SUB_BUCKETS) {
+            return indice;
+        }
+        int grupo = indice / MITAD_SUB - 1;
+        long sub = indice - (long) grupo * MITAD_SUB;
+        return ((sub + 1) << grupo) - 1;
+    }
+
+    public void registrar(long micros) {
+        long valor = Math.min(Math.max(0, micros), VALOR_MAXIMO);
+        cuentas.incrementAndGet(indice(valor));
+        total.increment();
+        suma.add(valor);
+        if (valor > maximo.get()) {
+            maximo.accumulateAndGet(valor, Math::max);
+        }
+    }
+
+    public long getConteo() {
+        return total.sum();
+    }
+
+    public long getMaximo() {
+        return maximo.get();
+    }
+
+    public long getSuma() {
+        return suma.sum();
+    }
+
+    public double getMedia() {
+        long n = total.sum();
+        return n == 0 ? 0 : (double) suma.sum() / n;
+    }
+
+    /**
+     * @param percentil entre 0 y 100
+     * @return latencia en µs por debajo de la cual queda ese percentil de muestras
+     */
+    public long percentil(double percentil) {
+        long n = total.sum();
+        if (n == 0) {
+            return 0;
+        }
+        long objetivo = Math.max(1, (long) Math.ceil(n * percentil / 100.0));
+        long acumulado = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            acumulado += cuentas.get(i);
+            if (acumulado >= objetivo) {
+                return Math.min(valorSuperior(i), maximo.get());
+            }
+        }
+        return maximo.get();
+    }
+
+    /** Suma las muestras de otro histograma a este. */
+    public void fusionar(HistogramaLatencia otro) {
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            long c = otro.cuentas.get(i);
+            if (c != 0) {
+                cuentas.addAndGet(i, c);
+            }
+        }
+        total.add(otro.total.sum());
+        suma.add(otro.suma.sum());
+        maximo.accumulateAndGet(otro.maximo.get(), Math::max);
+    }
+
+    /**
+     * Serializa sólo los buckets con muestras (índice y cuenta), de modo
+     * que el tamaño depende de la dispersión de las latencias y no del
+     * rango. Lo leído con {@link #leer} se fusiona sin pérdida.
+     */
+    public void escribir(DataOutput salida) throws IOException {
+        // Copia previa: si otro hilo sigue registrando, el número de buckets anunciado no cambia
+        long[] copia = new long[NUM_BUCKETS];
+        int ocupados = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            copia[i] = cuentas.get(i);
+            if (copia[i] != 0) {
+                ocupados++;
+            }
+        }
+        salida.writeInt(NUM_BUCKETS);
+        salida.writeInt(ocupados);
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            if (copia[i] != 0) {
+                salida.writeInt(i);
+                salida.writeLong(copia[i]);
+            }
+        }
+        salida.writeLong(total.sum());
+        salida.writeLong(suma.sum());
+        salida.writeLong(maximo.get());
+    }
+
+    public static HistogramaLatencia leer(DataInput entrada) throws IOException {
+        int buckets = entrada.readInt();
+        if (buckets != NUM_BUCKETS) {
+            throw new IOException("Histograma con " + buckets + " buckets, se esperaban " + NUM_BUCKETS);
+        }
+        HistogramaLatencia h = new HistogramaLatencia();
+        int ocupados = entrada.readInt();
+        for (int k = 0; k < ocupados; k++) {
+            int i = entrada.readInt();
+            if (i < 0 || i >= NUM_BUCKETS) {
+                throw new IOException("Bucket fuera de rango: " + i);
+            }
+            h.cuentas.set(i, entrada.readLong());
+        }
+        h.total.add(entrada.readLong());
+        h.suma.add(entrada.readLong());
+        h.maximo.set(entrada.readLong());
+        return h;
+    }
+}
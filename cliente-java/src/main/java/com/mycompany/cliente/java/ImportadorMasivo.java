@@ -0,0 +1,535 @@
+package com.mycompany.cliente.java;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Importación masiva de usuarios desde un archivo JSON Lines o CSV.
+ *
+ * El archivo se lee por bloques con un FileChannel y se trocea en líneas
+ * sobre el mismo buffer, así que la memoria no depende del tamaño del
+ * archivo. Como mucho hay maxEnVuelo registros publicados sin respuesta;
+ * el lector se detiene hasta que se libera un hueco.
+ *
+ * Las respuestas llegan desordenadas, por lo que el punto de control es
+ * el offset de la primera línea que aún no ha terminado: todo lo anterior
+ * está resuelto. Se guarda periódicamente en &lt;archivo&gt;.checkpoint y,
+ * al reanudar, la lectura empieza ahí. Las líneas que estaban en vuelo al
+ * caerse el proceso se vuelven a enviar (entrega al menos una vez); las
+ * que ya se habían guardado volverán como "ya existe".
+ *
+ * Las fallidas se anotan en el archivo de fallidos cuando el punto de
+ * control pasa por ellas, en orden de línea, y el checkpoint guarda también
+ * cuántos bytes de ese archivo corresponden a lo ya resuelto. Al reanudar
+ * se trunca a esa longitud, así que una línea que se reintenta no queda
+ * anotada dos veces.
+ *
+ * Al terminar una importación completa el checkpoint se borra, y uno que
+ * se guardó para otro tamaño o fecha de modificación del archivo se
+ * descarta: volver a importar el mismo nombre, o una versión corregida,
+ * empieza desde el principio.
+ *
+ * CSV: nombre,correo,clave,dni,telefono[,amigos] con los amigos separados
+ * por ';' y campos entre comillas dobles si contienen comas. Una primera
+ * línea que empiece por "nombre" se toma como cabecera.
+ */
+public class ImportadorMasivo {
+
+    public enum Formato { JSONL, CSV }
+
+    public static final class Parametros {
+        int maxEnVuelo = 1000;
+        /** Vacío para no guardar las fallidas. */
+        String archivoFallidos = "";
+        long intervaloCheckpointSegundos = 5;
+        boolean reanudar = true;
+    }
+
+    public static final class Resultado {
+        long lineas;
+        long exitosos;
+        long fallidos;
+        long offsetFinal;
+        long nanos;
+    }
+
+    private static final int BLOQUE = 1 << 20;
+
+    private final Function<RegistroUsuario, CompletableFuture<ResultadoRegistro>> enviar;
+
+    public ImportadorMasivo(Function<RegistroUsuario, CompletableFuture<ResultadoRegistro>> enviar) {
+        this.enviar = enviar;
+    }
+
+    public static Formato formatoDe(Path archivo) {
+        return archivo.getFileName().toString().toLowerCase().endsWith(".csv") ? Formato.CSV : Formato.JSONL;
+    }
+
+    public static Path archivoCheckpoint(Path archivo) {
+        return archivo.resolveSibling(archivo.getFileName() + ".checkpoint");
+    }
+
+    public Resultado importar(Path archivo, Parametros p) throws IOException, InterruptedException {
+        Formato formato = formatoDe(archivo);
+        Path checkpoint = archivoCheckpoint(archivo);
+        long offsetInicial = 0;
+        long lineaInicial = 0;
+        long bytesFallidos = 0;
+        String huella = Files.size(archivo) + ":" + Files.getLastModifiedTime(archivo).toMillis();
+        Properties guardado = new Properties();
+        if (p.reanudar && Files.exists(checkpoint)) {
+            try (Reader r = Files.newBufferedReader(checkpoint)) {
+                guardado.load(r);
+            }
+            if (!huella.equals(guardado.getProperty("archivo", huella))) {
+                System.out.println("⚠️  El checkpoint es de otra versión del archivo; se importa desde el principio");
+                guardado.clear();
+            }
+        }
+        if (!guardado.isEmpty()) {
+            offsetInicial = Long.parseLong(guardado.getProperty("offset", "0"));
+            lineaInicial = Long.parseLong(guardado.getProperty("linea", "0"));
+            // Un checkpoint sin la longitud del archivo de fallidos conserva el archivo entero
+            bytesFallidos = Long.parseLong(guardado.getProperty("fallidos", Long.toString(Long.MAX_VALUE)));
+            System.out.println("   Reanudando desde la línea " + (lineaInicial + 1) + " (offset " + offsetInicial + ")");
+        }
+        Fallidos fallidos = new Fallidos(p.archivoFallidos, offsetInicial > 0 ? bytesFallidos : 0);
+        Ventana ventana = new Ventana(p.maxEnVuelo, fallidos);
+        ventana.iniciar(offsetInicial, lineaInicial);
+
+        long inicio = System.nanoTime();
+        long proximoCheckpoint = inicio + TimeUnit.SECONDS.toNanos(p.intervaloCheckpointSegundos);
+
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            canal.position(offsetInicial);
+            ByteBuffer buffer = ByteBuffer.allocate(BLOQUE);
+            byte[] datos = buffer.array();
+            long offsetBuffer = offsetInicial;
+            long numeroLinea = lineaInicial;
+            boolean primera = offsetInicial == 0;
+            boolean finArchivo = false;
+
+            while (!finArchivo || buffer.position() > 0) {
+                if (!finArchivo) {
+                    if (!buffer.hasRemaining()) {
+                        // Una sola línea ocupa todo el buffer: se amplía
+                        ByteBuffer mayor = ByteBuffer.allocate(buffer.capacity() * 2);
+                        buffer.flip();
+                        mayor.put(buffer);
+                        buffer = mayor;
+                        datos = buffer.array();
+                    }
+                    finArchivo = canal.read(buffer) < 0;
+                }
+                int limite = buffer.position();
+                int desde = 0;
+                for (int i = 0; i < limite; i++) {
+                    if (datos[i] == '\n' || (finArchivo && i == limite - 1)) {
+                        int fin = datos[i] == '\n' ? i : i + 1;
+                        numeroLinea++;
+                        long offsetSiguiente = offsetBuffer + i + 1;
+                        int longitud = fin - desde;
+                        if (longitud > 0 && datos[fin - 1] == '\r') {
+                            longitud--;
+                        }
+                        boolean cabecera = primera && formato == Formato.CSV && esCabecera(datos, desde, longitud);
+                        primera = false;
+                        if (longitud > 0 && !cabecera) {
+                            procesarLinea(formato, datos, desde, longitud, numeroLinea, offsetSiguiente, ventana);
+                        } else {
+                            ventana.saltar(offsetSiguiente, numeroLinea);
+                        }
+                        desde = i + 1;
+
+                        if (System.nanoTime() - proximoCheckpoint >= 0) {
+                            guardarCheckpoint(checkpoint, huella, ventana, fallidos);
+                            informar(ventana, inicio);
+                            proximoCheckpoint = System.nanoTime() + TimeUnit.SECONDS.toNanos(p.intervaloCheckpointSegundos);
+                        }
+                    }
+                }
+                // Lo que queda tras la última línea completa pasa al principio del buffer
+                System.arraycopy(datos, desde, datos, 0, limite - desde);
+                buffer.position(limite - desde);
+                offsetBuffer += desde;
+                if (finArchivo && desde == limite) {
+                    break;
+                }
+            }
+        }
+
+        ventana.esperarTodas();
+        fallidos.close();
+        // Todo resuelto: un checkpoint en el final del archivo sólo haría que
+        // la siguiente importación con este nombre no enviara nada
+        Files.deleteIfExists(checkpoint);
+
+        Resultado r = new Resultado();
+        r.lineas = ventana.getLineaConfirmada() - lineaInicial;
+        r.exitosos = ventana.exitosos.sum();
+        r.fallidos = ventana.fallidos.sum();
+        r.offsetFinal = ventana.getOffsetConfirmado();
+        r.nanos = System.nanoTime() - inicio;
+        return r;
+    }
+
+    private void procesarLinea(Formato formato, byte[] datos, int desde, int longitud, long numeroLinea,
+                               long offsetSiguiente, Ventana ventana) throws InterruptedException {
+        RegistroUsuario usuario;
+        try {
+            usuario = formato == Formato.CSV
+                ? desdeCsv(datos, desde, longitud)
+                : CodecMensajes.leerRegistro(datos, desde, longitud);
+        } catch (IOException | RuntimeException e) {
+            long turno = ventana.reservar(offsetSiguiente, numeroLinea, false);
+            ventana.terminar(turno, null, "Línea ilegible: " + e.getMessage());
+            return;
+        }
+
+        long turno = ventana.reservar(offsetSiguiente, numeroLinea, true);
+        CompletableFuture<ResultadoRegistro> respuesta;
+        try {
+            respuesta = enviar.apply(usuario);
+        } catch (RuntimeException e) {
+            respuesta = CompletableFuture.completedFuture(ResultadoRegistro.error(e.getMessage()));
+        }
+        respuesta.whenComplete((resultado, error) -> {
+            if (error == null && resultado.esExitoso()) {
+                ventana.terminar(turno, null, null);
+            } else {
+                ventana.terminar(turno, usuario.getDni(), error != null ? error.getMessage() : resultado.getMensaje());
+            }
+        });
+    }
+
+    private static boolean esCabecera(byte[] datos, int desde, int longitud) {
+        return longitud >= 6 && new String(datos, desde, 6, StandardCharsets.UTF_8).equalsIgnoreCase("nombre");
+    }
+
+    /** Parte una línea CSV respetando comillas dobles ("" dentro de un campo entrecomillado es una comilla). */
+    static List<String> camposCsv(byte[] datos, int desde, int longitud) {
+        List<String> campos = new ArrayList<>(6);
+        ByteArrayOutputStream campo = new ByteArrayOutputStream(32);
+        boolean entreComillas = false;
+        int fin = desde + longitud;
+        for (int i = desde; i < fin; i++) {
+            byte b = datos[i];
+            if (entreComillas) {
+                if (b == '"') {
+                    if (i + 1 < fin && datos[i + 1] == '"') {
+                        campo.write('"');
+                        i++;
+                    } else {
+                        entreComillas = false;
+                    }
+                } else {
+                    campo.write(b);
+                }
+            } else if (b == '"') {
+                entreComillas = true;
+            } else if (b == ',') {
+                campos.add(campo.toString(StandardCharsets.UTF_8));
+                campo.reset();
+            } else {
+                campo.write(b);
+            }
+        }
+        campos.add(campo.toString(StandardCharsets.UTF_8));
+        return campos;
+    }
+
+    static RegistroUsuario desdeCsv(byte[] datos, int desde, int longitud) {
+        List<String> c = camposCsv(datos, desde, longitud);
+        if (c.size() < 5) {
+            throw new IllegalArgumentException("se esperaban al menos 5 columnas y hay " + c.size());
+        }
+        List<String> amigos = null;
+        if (c.size() > 5 && !c.get(5).isBlank()) {
+            amigos = new ArrayList<>();
+            for (String amigo : c.get(5).split(";")) {
+                if (!amigo.isBlank()) {
+                    amigos.add(amigo.trim());
+                }
+            }
+        }
+        return new RegistroUsuario(c.get(0).trim(), c.get(1).trim(), c.get(2), c.get(3).trim(), c.get(4).trim(), amigos);
+    }
+
+    /** @param huella tamaño y fecha de modificación del archivo que se importa */
+    private static void guardarCheckpoint(Path checkpoint, String huella, Ventana ventana, Fallidos fallidos)
+            throws IOException {
+        long[] punto = ventana.puntoDeControl();
+        // Lo anotado hasta el punto de control debe estar en el archivo antes de que el checkpoint lo cite
+        fallidos.flush();
+        Properties p = new Properties();
+        p.setProperty("offset", Long.toString(punto[0]));
+        p.setProperty("linea", Long.toString(punto[1]));
+        p.setProperty("fallidos", Long.toString(punto[2]));
+        p.setProperty("archivo", huella);
+        Path temporal = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        try (Writer w = Files.newBufferedWriter(temporal)) {
+            p.store(w, "Importación masiva: todo lo anterior a offset está resuelto");
+        }
+        Files.move(temporal, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void informar(Ventana ventana, long inicio) {
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        long terminadas = ventana.exitosos.sum() + ventana.fallidos.sum();
+        System.out.printf("  [%4.0fs] línea %d | %d ok | %d fallidas | %.0f reg/s%n",
+            segundos, ventana.getLineaConfirmada(), ventana.exitosos.sum(), ventana.fallidos.sum(), terminadas / segundos);
+    }
+
+    /**
+     * Líneas en curso en un anillo indexado por turno. El semáforo limita
+     * las peticiones en vuelo; el anillo, de tamaño 4 × maxEnVuelo, limita
+     * además cuánto puede adelantarse el lector a la línea más antigua sin
+     * terminar, que es la que fija el punto de control. Las fallidas se
+     * anotan cuando el punto de control pasa por ellas.
+     */
+    private static final class Ventana {
+        private final Semaphore enVuelo;
+        private final int mascara;
+        private final long[] offsets;
+        private final long[] lineas;
+        private final boolean[] hechos;
+        private final boolean[] conPermisos;
+        private final String[] dnis;
+        /** Error de la línea si falló; null si terminó bien o sigue en curso. */
+        private final String[] errores;
+        private final Fallidos archivoFallidos;
+        private final ReentrantLock cerrojo = new ReentrantLock();
+        private final Condition avance = cerrojo.newCondition();
+        final LongAdder exitosos = new LongAdder();
+        final LongAdder fallidos = new LongAdder();
+        private long siguienteTurno;
+        private long primerPendiente;
+        private long offsetConfirmado;
+        private long lineaConfirmada;
+
+        Ventana(int maxEnVuelo, Fallidos archivoFallidos) {
+            maxEnVuelo = Math.max(1, maxEnVuelo);
+            this.enVuelo = new Semaphore(maxEnVuelo);
+            int tamano = Integer.highestOneBit(maxEnVuelo * 4 - 1) << 1;
+            this.mascara = tamano - 1;
+            this.offsets = new long[tamano];
+            this.lineas = new long[tamano];
+            this.hechos = new boolean[tamano];
+            this.conPermisos = new boolean[tamano];
+            this.dnis = new String[tamano];
+            this.errores = new String[tamano];
+            this.archivoFallidos = archivoFallidos;
+        }
+
+        void iniciar(long offset, long linea) {
+            offsetConfirmado = offset;
+            lineaConfirmada = linea;
+        }
+
+        /** Ocupa un hueco para la línea; si conPermiso, cuenta también como petición en vuelo. */
+        long reservar(long offsetSiguiente, long linea, boolean conPermiso) throws InterruptedException {
+            if (conPermiso) {
+                enVuelo.acquire();
+            }
+            cerrojo.lock();
+            try {
+                while (siguienteTurno - primerPendiente > mascara) {
+                    avance.await();
+                }
+                long turno = siguienteTurno++;
+                int i = (int) turno & mascara;
+                offsets[i] = offsetSiguiente;
+                lineas[i] = linea;
+                hechos[i] = false;
+                conPermisos[i] = conPermiso;
+                dnis[i] = null;
+                errores[i] = null;
+                return turno;
+            } finally {
+                cerrojo.unlock();
+            }
+        }
+
+        /** Línea vacía o cabecera: no se envía, pero el punto de control la deja atrás. */
+        void saltar(long offsetSiguiente, long linea) throws InterruptedException {
+            marcarHecho(reservar(offsetSiguiente, linea, false), null, null);
+        }
+
+        /** @param error null si la línea se importó bien */
+        void terminar(long turno, String dni, String error) {
+            if (error == null) {
+                exitosos.increment();
+            } else {
+                fallidos.increment();
+            }
+            marcarHecho(turno, dni, error);
+        }
+
+        private void marcarHecho(long turno, String dni, String error) {
+            boolean liberar;
+            cerrojo.lock();
+            try {
+                hechos[(int) turno & mascara] = true;
+                dnis[(int) turno & mascara] = dni;
+                errores[(int) turno & mascara] = error;
+                liberar = conPermisos[(int) turno & mascara];
+                while (primerPendiente < siguienteTurno && hechos[(int) primerPendiente & mascara]) {
+                    int i = (int) primerPendiente & mascara;
+                    if (errores[i] != null) {
+                        archivoFallidos.escribir(lineas[i], dnis[i], errores[i]);
+                        dnis[i] = null;
+                        errores[i] = null;
+                    }
+                    offsetConfirmado = offsets[i];
+                    lineaConfirmada = lineas[i];
+                    primerPendiente++;
+                }
+                avance.signalAll();
+            } finally {
+                cerrojo.unlock();
+            }
+            if (liberar) {
+                enVuelo.release();
+            }
+        }
+
+        void esperarTodas() throws InterruptedException {
+            cerrojo.lock();
+            try {
+                while (primerPendiente < siguienteTurno) {
+                    avance.await();
+                }
+            } finally {
+                cerrojo.unlock();
+            }
+        }
+
+        /** Offset, línea y bytes anotados en el archivo de fallidos, tomados a la vez. */
+        long[] puntoDeControl() {
+            cerrojo.lock();
+            try {
+                return new long[] {offsetConfirmado, lineaConfirmada, archivoFallidos.getPosicion()};
+            } finally {
+                cerrojo.unlock();
+            }
+        }
+
+        long getOffsetConfirmado() {
+            cerrojo.lock();
+            try {
+                return offsetConfirmado;
+            } finally {
+                cerrojo.unlock();
+            }
+        }
+
+        long getLineaConfirmada() {
+            cerrojo.lock();
+            try {
+                return lineaConfirmada;
+            } finally {
+                cerrojo.unlock();
+            }
+        }
+    }
+
+    /** Registros que no se pudieron importar, en JSON Lines con su número de línea. */
+    private static final class Fallidos implements Closeable {
+        private final OutputStream salida;
+        private final ReentrantLock cerrojo = new ReentrantLock();
+        /** Bytes del archivo, contando lo que aún está en el buffer. */
+        private long posicion;
+
+        /**
+         * @param conservar bytes del archivo existente que se mantienen; lo
+         *                  que haya después se descarta
+         */
+        Fallidos(String archivo, long conservar) throws IOException {
+            if (archivo.isEmpty()) {
+                this.salida = null;
+                return;
+            }
+            FileChannel canal = FileChannel.open(Paths.get(archivo), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            posicion = Math.min(conservar, canal.size());
+            canal.truncate(posicion);
+            canal.position(posicion);
+            this.salida = new BufferedOutputStream(Channels.newOutputStream(canal), 1 << 16);
+        }
+
+        void escribir(long linea, String dni, String error) {
+            if (salida == null) {
+                return;
+            }
+            StringBuilder sb = new StringBuilder(96);
+            sb.append("{\"linea\":").append(linea);
+            if (dni != null) {
+                sb.append(",\"dni\":\"").append(escapar(dni)).append('"');
+            }
+            sb.append(",\"error\":\"").append(escapar(String.valueOf(error))).append("\"}\n");
+            byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+            cerrojo.lock();
+            try {
+                salida.write(bytes);
+                posicion += bytes.length;
+            } catch (IOException e) {
+                System.err.println("❌ No se pudo escribir la línea " + linea + " en el archivo de fallidos: " + e.getMessage());
+            } finally {
+                cerrojo.unlock();
+            }
+        }
+
+        private static String escapar(String s) {
+            StringBuilder sb = new StringBuilder(s.length());
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"' || c == '\\') {
+                    sb.append('\\').append(c);
+                } else if (c < 0x20) {
+                    sb.append(String.format("\\u%04x", (int) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+            return sb.toString();
+        }
+
+        long getPosicion() {
+            cerrojo.lock();
+            try {
+                return posicion;
+            } finally {
+                cerrojo.unlock();
+            }
+        }
+
+        void flush() throws IOException {
+            if (salida != null) {
+                cerrojo.lock();
+                try {
+                    salida.flush();
+                } finally {
+                    cerrojo.unlock();
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (salida != null) {
+                salida.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.mycompany.cliente.java;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Conjunto de DNIs ya registrados con éxito, para rechazar duplicados sin
+ * hacer el viaje a LP2 y LP1.
+ *
+ * Un DNI de 8 dígitos es un entero entre 0 y 99.999.999, así que el
+ * conjunto es un bitset de 10^8 bits (12,5 MB) fuera del heap: sin
+ * Strings ni boxing, y marcar o consultar es un OR atómico o una lectura
+ * de una palabra de 64 bits. Con archivo, el bitset es un mapeo en memoria
+ * del propio archivo y el índice se conserva entre ejecuciones.
+ */
+public class IndiceDni implements Closeable {
+    private static final int DNIS = 100_000_000;
+    private static final int BYTES = (DNIS + 63) / 64 * Long.BYTES;
+    private static final VarHandle PALABRA =
+        MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final ByteBuffer bits;
+    private final FileChannel archivo;
+    private final LongAdder cantidad = new LongAdder();
+
+    /** Índice sólo en memoria, se pierde al cerrar el cliente. */
+    public IndiceDni() {
+        this.bits = ByteBuffer.allocateDirect(BYTES);
+        this.archivo = null;
+    }
+
+    /** Índice respaldado por el archivo, que se crea si no existe. */
+    public IndiceDni(Path ruta) throws IOException {
+        if (Files.exists(ruta) && Files.size(ruta) != 0 && Files.size(ruta) != BYTES) {
+            throw new IOException(ruta + " no es un índice de DNIs (" + Files.size(ruta) + " bytes)");
+        }
+        this.archivo = FileChannel.open(ruta, StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.bits = archivo.map(FileChannel.MapMode.READ_WRITE, 0, BYTES);
+        long marcados = 0;
+        for (int i = 0; i < BYTES; i += Long.BYTES) {
+            marcados += Long.bitCount((long) PALABRA.get(bits, i));
+        }
+        cantidad.add(marcados);
+    }
+
+    /** @return el DNI como entero, o -1 si no son exactamente 8 dígitos */
+    static int codificar(String dni) {
+        if (dni == null || dni.length() != 8) {
+            return -1;
+        }
+        int valor = 0;
+        for (int i = 0; i < 8; i++) {
+            int digito = dni.charAt(i) - '0';
+            if (digito < 0 || digito > 9) {
+                return -1;
+            }
+            valor = valor * 10 + digito;
+        }
+        return valor;
+    }
+
+    public boolean contiene(String dni) {
+        int valor = codificar(dni);
+        if (valor < 0) {
+            return false;
+        }
+        long palabra = (long) PALABRA.getAcquire(bits, (valor >>> 6) * Long.BYTES);
+        return (palabra & (1L << valor)) != 0;
+    }
+
+    /** @return true si el DNI no estaba marcado */
+    public boolean marcar(String dni) {
+        int valor = codificar(dni);
+        if (valor < 0) {
+            return false;
+        }
+        long mascara = 1L << valor;
+        long anterior = (long) PALABRA.getAndBitwiseOr(bits, (valor >>> 6) * Long.BYTES, mascara);
+        if ((anterior & mascara) != 0) {
+            return false;
+        }
+        cantidad.increment();
+        return true;
+    }
+
+    public long getCantidad() {
+        return cantidad.sum();
+    }
+
+    public boolean esPersistente() {
+        return archivo != null;
+    }
+
+    /** Vuelca al disco las páginas modificadas; sin archivo no hace nada. */
+    public void sincronizar() {
+        if (archivo != null) {
+            ((MappedByteBuffer) bits).force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (archivo != null) {
+            sincronizar();
+            archivo.close();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.mycompany.cliente.java;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Control de admisión delante de registrarUsuario: limita cuántas
+ * peticiones puede haber en vuelo y ajusta ese límite con AIMD según la
+ * latencia observada.
+ *
+ * Mientras la latencia se mantiene por debajo de tolerancia × la mínima
+ * observada, el límite sube en 1/límite por respuesta (aproximadamente +1
+ * por ronda completa). Si una respuesta tarda más o expira, el límite se
+ * multiplica por el factor de retroceso, como mucho una vez por RTT para
+ * que una racha de respuestas lentas no lo hunda de golpe; antes del
+ * primer éxito vale como RTT el de la petición fallida, con un mínimo de
+ * 100 ms. La latencia mínima de referencia es la mínima de la ventana
+ * anterior (10 s), así puede subir si el sistema cambia de régimen pero no
+ * persigue a la latencia inflada por la propia sobrecarga.
+ *
+ * Cuando no hay hueco, según el modo, el llamador se bloquea, se rechaza
+ * la petición o queda en una cola acotada hasta que se libere un permiso.
+ */
+public class LimitadorConcurrencia {
+
+    public enum Modo { BLOQUEAR, FALLAR, ENCOLAR }
+
+    public static class SaturadoException extends RejectedExecutionException {
+        private static final long serialVersionUID = 1L;
+
+        public SaturadoException(String mensaje) {
+            super(mensaje);
+        }
+    }
+
+    private static final long VENTANA_RTT_NANOS = 10_000_000_000L;
+    /** Separación mínima entre reducciones mientras no hay ningún RTT medido. */
+    static final long RTT_DESCONOCIDO_NANOS = 100_000_000L;
+
+    private final Modo modo;
+    private final int limiteMinimo;
+    private final int limiteMaximo;
+    private final int colaMaxima;
+    private final double tolerancia;
+    private final double retroceso;
+    private final Executor ejecutorCola;
+
+    private final ReentrantLock cerrojo = new ReentrantLock();
+    private final Condition hayHueco = cerrojo.newCondition();
+    private final ArrayDeque<CompletableFuture<Void>> cola = new ArrayDeque<>();
+    private double limite;
+    private int enVuelo;
+    private long rttMinimo;
+    private long rttMinimoVentana;
+    private long inicioVentana = System.nanoTime();
+    private long ultimaReduccion;
+    private long rechazadas;
+
+    /**
+     * @param ejecutorCola dónde se reanudan las peticiones encoladas; así no
+     *                     corren en el hilo que entrega las respuestas
+     */
+    public LimitadorConcurrencia(Modo modo, int limiteInicial, int limiteMinimo, int limiteMaximo,
+                                 int colaMaxima, double tolerancia, double retroceso, Executor ejecutorCola) {
+        this.modo = modo;
+        this.limiteMinimo = Math.max(1, limiteMinimo);
+        this.limiteMaximo = Math.max(this.limiteMinimo, limiteMaximo);
+        this.colaMaxima = colaMaxima;
+        this.tolerancia = tolerancia;
+        this.retroceso = retroceso;
+        this.ejecutorCola = ejecutorCola;
+        this.limite = Math.min(Math.max(limiteInicial, this.limiteMinimo), this.limiteMaximo);
+    }
+
+    /**
+     * Pide un permiso. En modo BLOQUEAR espera aquí mismo; en FALLAR
+     * devuelve un future fallido con {@link SaturadoException}; en ENCOLAR
+     * devuelve un future que se completa cuando el permiso queda libre.
+     */
+    public CompletableFuture<Void> adquirir() {
+        cerrojo.lock();
+        try {
+            if (cola.isEmpty() && enVuelo < (int) limite) {
+                enVuelo++;
+                return CompletableFuture.completedFuture(null);
+            }
+            switch (modo) {
+                case BLOQUEAR:
+                    while (enVuelo >= (int) limite) {
+                        hayHueco.awaitUninterruptibly();
+                    }
+                    enVuelo++;
+                    return CompletableFuture.completedFuture(null);
+                case ENCOLAR:
+                    if (cola.size() < colaMaxima) {
+                        CompletableFuture<Void> espera = new CompletableFuture<>();
+                        cola.addLast(espera);
+                        return espera;
+                    }
+                    // Cola llena: se rechaza igual que en FALLAR
+                    return rechazar();
+                default:
+                    return rechazar();
+            }
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /** Con el cerrojo tomado. */
+    private CompletableFuture<Void> rechazar() {
+        rechazadas++;
+        return CompletableFuture.failedFuture(new SaturadoException(
+            "Cliente saturado: " + enVuelo + " peticiones en vuelo (límite " + (int) limite + ")"));
+    }
+
+    /**
+     * Devuelve el permiso e informa del resultado de la petición.
+     *
+     * @param rttNanos tiempo desde que se concedió el permiso hasta la respuesta
+     * @param fallo    true si la petición expiró o no se pudo publicar
+     */
+    public void liberar(long rttNanos, boolean fallo) {
+        CompletableFuture<Void> siguiente = null;
+        cerrojo.lock();
+        try {
+            long ahora = System.nanoTime();
+            boolean congestion = fallo;
+            if (!fallo) {
+                if (rttMinimo == 0 || rttNanos < rttMinimo) {
+                    rttMinimo = rttNanos;
+                }
+                if (rttMinimoVentana == 0 || rttNanos < rttMinimoVentana) {
+                    rttMinimoVentana = rttNanos;
+                }
+                if (ahora - inicioVentana > VENTANA_RTT_NANOS) {
+                    rttMinimo = rttMinimoVentana;
+                    rttMinimoVentana = 0;
+                    inicioVentana = ahora;
+                }
+                congestion = rttNanos > tolerancia * rttMinimo;
+            }
+
+            if (congestion) {
+                // Sin ningún éxito aún (arranque en frío, caída del broker) no
+                // hay RTT de referencia; el de la propia petición fallida, que
+                // en un timeout es el timeout, o un mínimo fijo hace de ventana
+                long ventana = rttMinimo > 0 ? rttMinimo : Math.max(rttNanos, RTT_DESCONOCIDO_NANOS);
+                if (ahora - ultimaReduccion > ventana) {
+                    limite = Math.max(limiteMinimo, limite * retroceso);
+                    ultimaReduccion = ahora;
+                }
+            } else if (enVuelo * 2 >= limite) {
+                // Sólo se sube si el límite realmente se está usando
+                limite = Math.min(limiteMaximo, limite + 1.0 / limite);
+            }
+
+            enVuelo--;
+            if (enVuelo < (int) limite) {
+                siguiente = cola.pollFirst();
+                if (siguiente != null) {
+                    enVuelo++;
+                } else {
+                    hayHueco.signal();
+                }
+            }
+        } finally {
+            cerrojo.unlock();
+        }
+        if (siguiente != null) {
+            siguiente.completeAsync(() -> null, ejecutorCola);
+        }
+    }
+
+    public Modo getModo() {
+        return modo;
+    }
+
+    public int getLimite() {
+        cerrojo.lock();
+        try {
+            return (int) limite;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    public int getEnVuelo() {
+        cerrojo.lock();
+        try {
+            return enVuelo;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    public int getEncoladas() {
+        cerrojo.lock();
+        try {
+            return cola.size();
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    public long getRechazadas() {
+        cerrojo.lock();
+        try {
+            return rechazadas;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+}
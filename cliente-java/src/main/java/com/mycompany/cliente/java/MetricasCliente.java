@@ -0,0 +1,210 @@
+package com.mycompany.cliente.java;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import javax.management.ObjectName;
+
+/**
+ * Registro de métricas del cliente, compartido por el menú, JMX y el
+ * endpoint HTTP en formato de texto de Prometheus.
+ *
+ * Cada petición aporta cuatro etapas, todas en µs:
+ * <ul>
+ *   <li>serializacion: RegistroUsuario a bytes</li>
+ *   <li>publicacion: basicPublish en el canal del pool</li>
+ *   <li>primera_respuesta: desde que terminó la publicación hasta que la
+ *       respuesta llega al consumidor (broker + LP2 + LP1)</li>
+ *   <li>total: desde la llamada a registrarUsuario hasta que el llamador
+ *       recibe el resultado, incluida la espera en el limitador</li>
+ * </ul>
+ * Los errores se agrupan por categoría: el mensaje con los números
+ * sustituidos por '#', de modo que "DNI 12345678 no encontrado" y
+ * "DNI 87654321 no encontrado" cuentan juntos.
+ */
+public class MetricasCliente implements MetricasClienteMXBean {
+    private static final int MAX_CATEGORIAS = 64;
+    private static final String OTRAS = "(otras)";
+
+    private final HistogramaLatencia serializacion = new HistogramaLatencia();
+    private final HistogramaLatencia publicacion = new HistogramaLatencia();
+    private final HistogramaLatencia primeraRespuesta = new HistogramaLatencia();
+    private final HistogramaLatencia total = new HistogramaLatencia();
+    private final LongAdder exitos = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder errores = new LongAdder();
+    private final LongAdder rechazosLocales = new LongAdder();
+    private final Map<String, LongAdder> erroresPorCategoria = new ConcurrentHashMap<>();
+    private volatile IntSupplier enVuelo = () -> 0;
+    private HttpServer servidorHttp;
+
+    public void setEnVuelo(IntSupplier enVuelo) {
+        this.enVuelo = enVuelo;
+    }
+
+    public void registrarEnvio(long nanosSerializacion, long nanosPublicacion) {
+        serializacion.registrar(TimeUnit.NANOSECONDS.toMicros(nanosSerializacion));
+        publicacion.registrar(TimeUnit.NANOSECONDS.toMicros(nanosPublicacion));
+    }
+
+    /** @param publicadoNanos instante en que terminó la publicación de esa petición */
+    public void registrarLlegada(ResultadoRegistro resultado, long publicadoNanos) {
+        if (resultado.getLlegadaNanos() != 0) {
+            primeraRespuesta.registrar(TimeUnit.NANOSECONDS.toMicros(resultado.getLlegadaNanos() - publicadoNanos));
+        }
+    }
+
+    /** Registro duplicado respondido por el índice local, sin publicar. */
+    public void registrarRechazoLocal() {
+        rechazosLocales.increment();
+    }
+
+    public void registrarResultado(ResultadoRegistro resultado, long nanosTotales) {
+        total.registrar(TimeUnit.NANOSECONDS.toMicros(nanosTotales));
+        if (resultado == ResultadoRegistro.TIMEOUT) {
+            timeouts.increment();
+        } else if (resultado.esExitoso()) {
+            exitos.increment();
+        } else {
+            errores.increment();
+            String categoria = categoria(resultado.getMensaje());
+            LongAdder contador = erroresPorCategoria.get(categoria);
+            if (contador == null) {
+                if (erroresPorCategoria.size() >= MAX_CATEGORIAS) {
+                    categoria = OTRAS;
+                }
+                contador = erroresPorCategoria.computeIfAbsent(categoria, k -> new LongAdder());
+            }
+            contador.increment();
+        }
+    }
+
+    static String categoria(String mensaje) {
+        if (mensaje == null) {
+            return "(sin mensaje)";
+        }
+        StringBuilder sb = new StringBuilder(Math.min(mensaje.length(), 80));
+        boolean enNumero = false;
+        for (int i = 0; i < mensaje.length() && sb.length() < 80; i++) {
+            char c = mensaje.charAt(i);
+            if (Character.isDigit(c)) {
+                if (!enNumero) {
+                    sb.append('#');
+                }
+                enNumero = true;
+            } else {
+                sb.append(c);
+                enNumero = false;
+            }
+        }
+        return sb.toString();
+    }
+
+    public HistogramaLatencia getSerializacion() { return serializacion; }
+    public HistogramaLatencia getPublicacion() { return publicacion; }
+    public HistogramaLatencia getPrimeraRespuesta() { return primeraRespuesta; }
+    public HistogramaLatencia getTotal() { return total; }
+
+    // --- MXBean ---
+
+    @Override public long getExitos() { return exitos.sum(); }
+    @Override public long getTimeouts() { return timeouts.sum(); }
+    @Override public long getErrores() { return errores.sum(); }
+    @Override public long getRechazosLocales() { return rechazosLocales.sum(); }
+    @Override public int getPeticionesEnVuelo() { return enVuelo.getAsInt(); }
+
+    @Override
+    public Map<String, Long> getErroresPorCategoria() {
+        Map<String, Long> copia = new TreeMap<>();
+        erroresPorCategoria.forEach((k, v) -> copia.put(k, v.sum()));
+        return copia;
+    }
+
+    @Override public double getSerializacionP99Ms() { return serializacion.percentil(99) / 1000.0; }
+    @Override public double getPublicacionP99Ms() { return publicacion.percentil(99) / 1000.0; }
+    @Override public double getPrimeraRespuestaP50Ms() { return primeraRespuesta.percentil(50) / 1000.0; }
+    @Override public double getPrimeraRespuestaP99Ms() { return primeraRespuesta.percentil(99) / 1000.0; }
+    @Override public double getTotalP50Ms() { return total.percentil(50) / 1000.0; }
+    @Override public double getTotalP99Ms() { return total.percentil(99) / 1000.0; }
+    @Override public double getTotalMaxMs() { return total.getMaximo() / 1000.0; }
+
+    public void registrarJmx() throws Exception {
+        ManagementFactory.getPlatformMBeanServer()
+            .registerMBean(this, new ObjectName("com.mycompany.cliente:type=Metricas"));
+    }
+
+    // --- Prometheus ---
+
+    public String formatoPrometheus() {
+        StringBuilder sb = new StringBuilder(2048);
+        sb.append("# HELP cliente_registros_total Registros terminados por resultado.\n");
+        sb.append("# TYPE cliente_registros_total counter\n");
+        sb.append("cliente_registros_total{resultado=\"exito\"} ").append(exitos.sum()).append('\n');
+        sb.append("cliente_registros_total{resultado=\"error\"} ").append(errores.sum()).append('\n');
+        sb.append("cliente_registros_total{resultado=\"timeout\"} ").append(timeouts.sum()).append('\n');
+
+        sb.append("# HELP cliente_rechazos_locales_total Duplicados rechazados sin publicar (incluidos en error).\n");
+        sb.append("# TYPE cliente_rechazos_locales_total counter\n");
+        sb.append("cliente_rechazos_locales_total ").append(rechazosLocales.sum()).append('\n');
+
+        sb.append("# HELP cliente_errores_total Errores por categoría de mensaje.\n");
+        sb.append("# TYPE cliente_errores_total counter\n");
+        getErroresPorCategoria().forEach((categoria, n) -> sb.append("cliente_errores_total{categoria=\"")
+            .append(escaparEtiqueta(categoria)).append("\"} ").append(n).append('\n'));
+
+        sb.append("# HELP cliente_peticiones_en_vuelo Peticiones publicadas sin respuesta todavía.\n");
+        sb.append("# TYPE cliente_peticiones_en_vuelo gauge\n");
+        sb.append("cliente_peticiones_en_vuelo ").append(enVuelo.getAsInt()).append('\n');
+
+        sb.append("# HELP cliente_latencia_segundos Latencia por etapa de la petición.\n");
+        sb.append("# TYPE cliente_latencia_segundos summary\n");
+        resumen(sb, "serializacion", serializacion);
+        resumen(sb, "publicacion", publicacion);
+        resumen(sb, "primera_respuesta", primeraRespuesta);
+        resumen(sb, "total", total);
+        return sb.toString();
+    }
+
+    private static void resumen(StringBuilder sb, String etapa, HistogramaLatencia h) {
+        for (double q : new double[] {0.5, 0.9, 0.99, 0.999}) {
+            sb.append("cliente_latencia_segundos{etapa=\"").append(etapa).append("\",quantile=\"").append(q)
+                .append("\"} ").append(h.percentil(q * 100) / 1e6).append('\n');
+        }
+        sb.append("cliente_latencia_segundos_sum{etapa=\"").append(etapa).append("\"} ")
+            .append(h.getSuma() / 1e6).append('\n');
+        sb.append("cliente_latencia_segundos_count{etapa=\"").append(etapa).append("\"} ")
+            .append(h.getConteo()).append('\n');
+    }
+
+    private static String escaparEtiqueta(String valor) {
+        return valor.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /** Sirve GET /metrics en localhost:puerto con un único hilo. */
+    public void iniciarHttp(int puerto) throws IOException {
+        servidorHttp = HttpServer.create(new InetSocketAddress("127.0.0.1", puerto), 0);
+        servidorHttp.createContext("/metrics", intercambio -> {
+            byte[] cuerpo = formatoPrometheus().getBytes(StandardCharsets.UTF_8);
+            intercambio.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            intercambio.sendResponseHeaders(200, cuerpo.length);
+            try (OutputStream salida = intercambio.getResponseBody()) {
+                salida.write(cuerpo);
+            }
+        });
+        servidorHttp.start();
+    }
+
+    public void detenerHttp() {
+        if (servidorHttp != null) {
+            servidorHttp.stop(0);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.mycompany.cliente.java;
+
+import java.util.Map;
+
+/**
+ * Vista JMX de {@link MetricasCliente}, registrada como
+ * com.mycompany.cliente:type=Metricas.
+ */
+public interface MetricasClienteMXBean {
+    long getExitos();
+    long getTimeouts();
+    long getErrores();
+    long getRechazosLocales();
+    int getPeticionesEnVuelo();
+    Map<String, Long> getErroresPorCategoria();
+
+    double getSerializacionP99Ms();
+    double getPublicacionP99Ms();
+    double getPrimeraRespuestaP50Ms();
+    double getPrimeraRespuestaP99Ms();
+    double getTotalP50Ms();
+    double getTotalP99Ms();
+    double getTotalMaxMs();
+}
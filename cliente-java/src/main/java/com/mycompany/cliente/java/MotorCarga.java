@@ -0,0 +1,292 @@
+package com.mycompany.cliente.java;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Generador de carga en lazo abierto.
+ *
+ * Las peticiones salen según un calendario fijado de antemano (tasa
+ * constante o en rampa), sin esperar a que terminen las anteriores. La
+ * latencia se mide desde el instante en que la petición debía salir y no
+ * desde que salió realmente, de modo que si el emisor se retrasa ese
+ * retraso también cuenta (corrección de omisión coordinada). Las
+ * peticiones programadas dentro del calentamiento se envían pero no se
+ * contabilizan.
+ */
+public class MotorCarga {
+
+    public static final class Parametros {
+        /** Número de peticiones; se ignora si duracionSegundos es mayor que cero. */
+        long peticiones = 1000;
+        long duracionSegundos = 0;
+        double tasaInicial = 200;
+        /** Tasa al final de la prueba; cero o igual a tasaInicial para tasa constante. */
+        double tasaFinal = 0;
+        long calentamientoSegundos = 0;
+        long intervaloReporteSegundos = 1;
+        long esperaFinalSegundos = 60;
+        /** Archivo donde anotar cada resultado ({@link RegistroResultados}); vacío para no guardarlos. */
+        String archivoResultados = "";
+    }
+
+    private final Function<RegistroUsuario, CompletableFuture<ResultadoRegistro>> enviar;
+    private final Supplier<RegistroUsuario> generador;
+
+    public MotorCarga(Function<RegistroUsuario, CompletableFuture<ResultadoRegistro>> enviar,
+                      Supplier<RegistroUsuario> generador) {
+        this.enviar = enviar;
+        this.generador = generador;
+    }
+
+    public Resultado ejecutar(Parametros p) throws InterruptedException, IOException {
+        Calendario calendario = new Calendario(p);
+        long calentamientoNanos = TimeUnit.SECONDS.toNanos(p.calentamientoSegundos);
+
+        Resultado resultado = new Resultado();
+        AtomicReference<HistogramaLatencia> intervalo = new AtomicReference<>(new HistogramaLatencia());
+        AtomicLong enviadasIntervalo = new AtomicLong();
+        AtomicLong enVuelo = new AtomicLong();
+        Object terminado = new Object();
+        // Como en RegistroResultados: pasada la espera final las respuestas
+        // tardías se descartan, y el cierre espera a las que ya estaban
+        // contabilizándose para que el Resultado no cambie después
+        AtomicBoolean cerrado = new AtomicBoolean();
+        AtomicInteger contabilizando = new AtomicInteger();
+
+        ScheduledExecutorService reportero = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "carga-reporte");
+            t.setDaemon(true);
+            return t;
+        });
+        long inicio = System.nanoTime();
+        RegistroResultados registro = p.archivoResultados.isEmpty() ? null
+            : new RegistroResultados(Paths.get(p.archivoResultados), inicio);
+        long periodo = Math.max(1, p.intervaloReporteSegundos);
+        reportero.scheduleAtFixedRate(() -> {
+            HistogramaLatencia h = intervalo.getAndSet(new HistogramaLatencia());
+            long segundos = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - inicio);
+            System.out.printf("  [%4ds] enviadas %7.1f/s | completadas %7.1f/s | p50 %8.2f ms | p99 %8.2f ms | en vuelo %d%n",
+                segundos, enviadasIntervalo.getAndSet(0) / (double) periodo, h.getConteo() / (double) periodo,
+                h.percentil(50) / 1000.0, h.percentil(99) / 1000.0, enVuelo.get());
+        }, periodo, periodo, TimeUnit.SECONDS);
+
+        try {
+            long i = 0;
+            long programado;
+            while ((programado = calendario.instante(i)) >= 0) {
+                long objetivo = inicio + programado;
+                esperarHasta(objetivo);
+
+                boolean medir = programado >= calentamientoNanos;
+                long id = i;
+                enVuelo.incrementAndGet();
+                enviadasIntervalo.incrementAndGet();
+                enviar.apply(generador.get()).whenComplete((response, error) -> {
+                    contabilizando.incrementAndGet();
+                    try {
+                        if (cerrado.get()) {
+                            return;
+                        }
+                        long completado = System.nanoTime();
+                        long latenciaMicros = TimeUnit.NANOSECONDS.toMicros(completado - objetivo);
+                        intervalo.get().registrar(latenciaMicros);
+                        if (registro != null) {
+                            registro.anotar(id, objetivo, completado, response, error, medir);
+                        }
+                        if (medir) {
+                            resultado.contabilizar(response, error, latenciaMicros);
+                        }
+                        if (enVuelo.decrementAndGet() == 0) {
+                            synchronized (terminado) {
+                                terminado.notifyAll();
+                            }
+                        }
+                    } finally {
+                        contabilizando.decrementAndGet();
+                    }
+                });
+                i++;
+            }
+            resultado.enviadas = i;
+            resultado.nanosEnvio = System.nanoTime() - inicio;
+
+            long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(p.esperaFinalSegundos);
+            synchronized (terminado) {
+                while (enVuelo.get() > 0 && System.nanoTime() < limite) {
+                    terminado.wait(100);
+                }
+            }
+            cerrado.set(true);
+            while (contabilizando.get() > 0) {
+                Thread.onSpinWait();
+            }
+            resultado.sinRespuesta = enVuelo.get();
+            resultado.nanosTotales = System.nanoTime() - inicio - Math.min(calentamientoNanos, resultado.nanosEnvio);
+        } finally {
+            reportero.shutdownNow();
+            if (registro != null) {
+                registro.close();
+            }
+        }
+        return resultado;
+    }
+
+    private static void esperarHasta(long objetivo) {
+        long restante;
+        while ((restante = objetivo - System.nanoTime()) > 0) {
+            // parkNanos puede pasarse varias decenas de µs; los últimos tramos se esperan activamente
+            if (restante > 100_000) {
+                LockSupport.parkNanos(restante - 50_000);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /**
+     * Instantes programados de envío, relativos al inicio de la prueba. Con
+     * rampa la tasa crece linealmente de tasaInicial a tasaFinal a lo largo
+     * de la prueba, y el instante de la petición i se obtiene invirtiendo el
+     * número acumulado de peticiones N(t) = r0·t + (r1 - r0)·t² / (2·D).
+     */
+    static final class Calendario {
+        private final double r0;
+        private final double r1;
+        private final double duracion;
+        private final long peticiones;
+
+        Calendario(Parametros p) {
+            r0 = Math.max(p.tasaInicial, 0.001);
+            r1 = p.tasaFinal > 0 ? p.tasaFinal : r0;
+            if (p.duracionSegundos > 0) {
+                duracion = p.duracionSegundos;
+                peticiones = (long) Math.floor((r0 + r1) / 2 * duracion);
+            } else {
+                peticiones = p.peticiones;
+                duracion = 2.0 * peticiones / (r0 + r1);
+            }
+        }
+
+        /** @return nanos desde el inicio para la petición i, o -1 si ya no hay más */
+        long instante(long i) {
+            if (i >= peticiones) {
+                return -1;
+            }
+            double segundos;
+            double a = (r1 - r0) / (2 * duracion);
+            if (Math.abs(a) < 1e-12) {
+                segundos = i / r0;
+            } else {
+                segundos = (-r0 + Math.sqrt(r0 * r0 + 4 * a * i)) / (2 * a);
+            }
+            return (long) (segundos * 1_000_000_000L);
+        }
+    }
+
+    public static final class Resultado {
+        private static final int MAX_CATEGORIAS = 64;
+        final HistogramaLatencia latencias = new HistogramaLatencia();
+        final LongAdder exitosos = new LongAdder();
+        final LongAdder fallidos = new LongAdder();
+        /** Por categoría (mensaje con los números colapsados), para que no crezca con cada DNI. */
+        final Map<String, LongAdder> errores = new ConcurrentHashMap<>();
+        long enviadas;
+        long sinRespuesta;
+        long nanosEnvio;
+        /** Duración de la parte medida, sin el calentamiento. */
+        long nanosTotales;
+
+        void contabilizar(ResultadoRegistro response, Throwable error, long latenciaMicros) {
+            latencias.registrar(latenciaMicros);
+            if (error == null && response.esExitoso()) {
+                exitosos.increment();
+                return;
+            }
+            String mensaje = error != null ? error.getMessage() : response.getMensaje();
+            fallidos.increment();
+            String categoria = MetricasCliente.categoria(mensaje);
+            LongAdder contador = errores.get(categoria);
+            if (contador == null) {
+                if (errores.size() >= MAX_CATEGORIAS) {
+                    categoria = "(otras)";
+                }
+                contador = errores.computeIfAbsent(categoria, k -> new LongAdder());
+            }
+            contador.increment();
+        }
+
+        /**
+         * Suma el resultado de otro generador que corrió a la vez que este.
+         * Las duraciones no se suman: la prueba combinada dura lo que el más
+         * lento, y el throughput resultante es el agregado.
+         */
+        void fusionar(Resultado otro) {
+            latencias.fusionar(otro.latencias);
+            exitosos.add(otro.exitosos.sum());
+            fallidos.add(otro.fallidos.sum());
+            otro.errores.forEach((categoria, n) -> {
+                String clave = errores.containsKey(categoria) || errores.size() < MAX_CATEGORIAS ? categoria : "(otras)";
+                errores.computeIfAbsent(clave, k -> new LongAdder()).add(n.sum());
+            });
+            enviadas += otro.enviadas;
+            sinRespuesta += otro.sinRespuesta;
+            nanosEnvio = Math.max(nanosEnvio, otro.nanosEnvio);
+            nanosTotales = Math.max(nanosTotales, otro.nanosTotales);
+        }
+
+        void escribir(DataOutput salida) throws IOException {
+            salida.writeLong(enviadas);
+            salida.writeLong(sinRespuesta);
+            salida.writeLong(nanosEnvio);
+            salida.writeLong(nanosTotales);
+            salida.writeLong(exitosos.sum());
+            salida.writeLong(fallidos.sum());
+            latencias.escribir(salida);
+            Map<String, Long> copia = new HashMap<>();
+            errores.forEach((categoria, n) -> copia.put(categoria, n.sum()));
+            salida.writeInt(copia.size());
+            for (Map.Entry<String, Long> e : copia.entrySet()) {
+                salida.writeUTF(e.getKey());
+                salida.writeLong(e.getValue());
+            }
+        }
+
+        static Resultado leer(DataInput entrada) throws IOException {
+            Resultado r = new Resultado();
+            r.enviadas = entrada.readLong();
+            r.sinRespuesta = entrada.readLong();
+            r.nanosEnvio = entrada.readLong();
+            r.nanosTotales = entrada.readLong();
+            r.exitosos.add(entrada.readLong());
+            r.fallidos.add(entrada.readLong());
+            r.latencias.fusionar(HistogramaLatencia.leer(entrada));
+            int categorias = entrada.readInt();
+            for (int i = 0; i < categorias; i++) {
+                String categoria = entrada.readUTF();
+                r.errores.computeIfAbsent(categoria, k -> new LongAdder()).add(entrada.readLong());
+            }
+            return r;
+        }
+
+        public long getMedidas() {
+            return latencias.getConteo();
+        }
+
+        public double getThroughput() {
+            return nanosTotales <= 0 ? 0 : latencias.getConteo() / (nanosTotales / 1e9);
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package com.mycompany.cliente.java;
+
+import com.rabbitmq.client.*;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Pool de canales de publicación repartidos entre una o varias conexiones.
+ *
+ * Cada publicación se asigna a una franja (por hilo o por correlation id) y
+ * sólo toma el cerrojo del canal de esa franja, así que los publicadores
+ * concurrentes únicamente compiten cuando caen en la misma. El canal que
+ * consume las respuestas queda fuera del pool.
+ *
+ * Con confirmaciones activas cada canal está en modo confirmSelect y cada
+ * publicación devuelve un future que se completa cuando el broker la
+ * confirma (o se completa con error si la rechaza o el canal se cae antes).
+ *
+ * Con direct reply-to cada canal consume además la pseudo-cola
+ * amq.rabbitmq.reply-to, porque RabbitMQ sólo entrega la respuesta en el
+ * canal que publicó la solicitud; así las respuestas llegan repartidas
+ * entre todos los canales del pool.
+ */
+public class PoolCanales implements AutoCloseable {
+
+    public enum Reparto { HILO, CORRELACION }
+
+    public static final String RESPUESTA_DIRECTA = "amq.rabbitmq.reply-to";
+
+    private final List<Connection> conexionesPropias = new ArrayList<>();
+    private final Franja[] franjas;
+    private final Reparto reparto;
+    private final boolean confirmaciones;
+    private final AtomicInteger siguienteFranja = new AtomicInteger();
+    private final ThreadLocal<Franja> franjaDelHilo;
+
+    /**
+     * @param principal conexión ya abierta del cliente; se usa como primera conexión del pool
+     * @param factory   factory con la que se abren las conexiones adicionales
+     */
+    public PoolCanales(Connection principal, ConnectionFactory factory,
+                       int numConexiones, int numCanales, Reparto reparto,
+                       boolean confirmaciones) throws IOException, TimeoutException {
+        this(principal, factory, numConexiones, numCanales, reparto, confirmaciones, null, false);
+    }
+
+    /**
+     * @param respuestasDirectas si no es null, cada canal consume con ella
+     *                           las respuestas enviadas a {@link #RESPUESTA_DIRECTA}
+     * @param enParalelo         abrir las conexiones adicionales y los canales a
+     *                           la vez en lugar de uno tras otro
+     */
+    public PoolCanales(Connection principal, ConnectionFactory factory,
+                       int numConexiones, int numCanales, Reparto reparto,
+                       boolean confirmaciones, DeliverCallback respuestasDirectas,
+                       boolean enParalelo) throws IOException, TimeoutException {
+        this.reparto = reparto;
+        this.confirmaciones = confirmaciones;
+
+        List<Connection> conexiones = new ArrayList<>();
+        conexiones.add(principal);
+        List<Connection> extras = abrir(Math.max(1, numConexiones) - 1, enParalelo,
+            i -> factory.newConnection("cliente-publicador-" + (i + 1)), Connection::abort);
+        conexionesPropias.addAll(extras);
+        conexiones.addAll(extras);
+
+        try {
+            franjas = abrir(Math.max(1, numCanales), enParalelo,
+                i -> new Franja(conexiones.get(i % conexiones.size()), confirmaciones, respuestasDirectas),
+                Franja::cerrar).toArray(new Franja[0]);
+        } catch (IOException | TimeoutException | RuntimeException e) {
+            // Quien llama sólo aborta la conexión principal; las adicionales
+            // se recuperarían solas en cada reintento
+            extras.forEach(Connection::abort);
+            throw e;
+        }
+
+        // Con hilos virtuales (uno por tarea) esto reparte las tareas en round-robin
+        franjaDelHilo = ThreadLocal.withInitial(
+            () -> franjas[Math.floorMod(siguienteFranja.getAndIncrement(), franjas.length)]);
+    }
+
+    @FunctionalInterface
+    interface Apertura<T> {
+        T abrir(int i) throws IOException, TimeoutException;
+    }
+
+    /**
+     * Abre n recursos (conexiones, canales). En paralelo cada apertura va en
+     * su propio hilo virtual, así que el tiempo total es el de la más lenta
+     * y no la suma de los viajes de ida y vuelta al broker. Si alguna falla,
+     * los que sí se abrieron se pasan a cierre antes de lanzar el error.
+     */
+    static <T> List<T> abrir(int n, boolean enParalelo, Apertura<T> apertura, Consumer<T> cierre)
+            throws IOException, TimeoutException {
+        List<T> abiertos = new ArrayList<>(n);
+        try {
+            if (!enParalelo || n <= 1) {
+                for (int i = 0; i < n; i++) {
+                    abiertos.add(apertura.abrir(i));
+                }
+            } else {
+                abrirEnParalelo(n, apertura, abiertos);
+            }
+            return abiertos;
+        } catch (IOException | TimeoutException | RuntimeException e) {
+            abiertos.forEach(cierre);
+            throw e;
+        }
+    }
+
+    private static <T> void abrirEnParalelo(int n, Apertura<T> apertura, List<T> abiertos)
+            throws IOException, TimeoutException {
+        List<Future<T>> pendientes = new ArrayList<>(n);
+        try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < n; i++) {
+                int indice = i;
+                pendientes.add(hilos.submit(() -> apertura.abrir(indice)));
+            }
+        }
+        // Cerrar el executor espera a todas: también se recogen las que
+        // salieron bien cuando otra falló, para que puedan cerrarse
+        Throwable fallo = null;
+        for (Future<T> f : pendientes) {
+            switch (f.state()) {
+                case SUCCESS -> abiertos.add(f.resultNow());
+                case FAILED -> fallo = fallo != null ? fallo : f.exceptionNow();
+                default -> fallo = fallo != null ? fallo : new IOException("Apertura interrumpida");
+            }
+        }
+        if (fallo instanceof IOException) {
+            throw (IOException) fallo;
+        }
+        if (fallo instanceof TimeoutException) {
+            throw (TimeoutException) fallo;
+        }
+        if (fallo instanceof RuntimeException) {
+            throw (RuntimeException) fallo;
+        }
+        if (fallo != null) {
+            throw new IOException(fallo);
+        }
+    }
+
+    /**
+     * @return future de la confirmación del broker; ya completado si el pool
+     *         no usa confirmaciones
+     */
+    public CompletableFuture<Void> publicar(String exchange, String routingKey, String correlationId,
+                                           AMQP.BasicProperties props, byte[] body) throws IOException {
+        return franjaPara(correlationId).publicar(exchange, routingKey, props, body);
+    }
+
+    /**
+     * Publica todos los mensajes seguidos en un mismo canal, tomando su
+     * cerrojo una sola vez. Las confirmaciones llegan después de forma
+     * asíncrona, normalmente agrupadas en rangos de delivery tags.
+     *
+     * Si el canal falla a mitad de lote, los mensajes ya publicados
+     * conservan su confirmación y los que no llegaron a salir reciben un
+     * future fallido; sólo se lanza la excepción si no salió ninguno.
+     */
+    public List<CompletableFuture<Void>> publicarLote(String exchange, String routingKey,
+                                                      List<Mensaje> mensajes) throws IOException {
+        String primero = mensajes.isEmpty() ? null : mensajes.get(0).correlationId;
+        return franjaPara(primero).publicarLote(exchange, routingKey, mensajes);
+    }
+
+    private Franja franjaPara(String correlationId) {
+        if (reparto == Reparto.CORRELACION && correlationId != null) {
+            return franjas[Math.floorMod(correlationId.hashCode(), franjas.length)];
+        }
+        return franjaDelHilo.get();
+    }
+
+    public boolean usaConfirmaciones() {
+        return confirmaciones;
+    }
+
+    public int getNumCanales() {
+        return franjas.length;
+    }
+
+    public int getNumConexiones() {
+        return conexionesPropias.size() + 1;
+    }
+
+    @Override
+    public void close() {
+        for (Franja franja : franjas) {
+            franja.cerrar();
+        }
+        for (Connection conexion : conexionesPropias) {
+            try {
+                conexion.close();
+            } catch (Exception ignored) {}
+        }
+    }
+
+    public static final class Mensaje {
+        final String correlationId;
+        final AMQP.BasicProperties props;
+        final byte[] body;
+
+        public Mensaje(String correlationId, AMQP.BasicProperties props, byte[] body) {
+            this.correlationId = correlationId;
+            this.props = props;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Un canal con su propio cerrojo. Es un ReentrantLock y no un bloque
+     * synchronized para que un hilo virtual que espera o escribe en el socket
+     * no deje fijado su hilo portador. Con la recuperación automática activa
+     * el mismo objeto Channel se reabre al volver la conexión, así que sólo
+     * hay que recrearlo cuando el broker lo cerró por un error de canal y la
+     * conexión sigue viva.
+     */
+    private static final class Franja {
+        private static final CompletableFuture<Void> CONFIRMADO = CompletableFuture.completedFuture(null);
+
+        private final Connection conexion;
+        private final boolean confirmaciones;
+        private final DeliverCallback respuestasDirectas;
+        private Channel canal;
+        private ConcurrentNavigableMap<Long, CompletableFuture<Void>> sinConfirmar;
+        private final ReentrantLock cerrojo = new ReentrantLock();
+
+        Franja(Connection conexion, boolean confirmaciones, DeliverCallback respuestasDirectas) throws IOException {
+            this.conexion = conexion;
+            this.confirmaciones = confirmaciones;
+            this.respuestasDirectas = respuestasDirectas;
+            abrirCanal();
+        }
+
+        private void abrirCanal() throws IOException {
+            canal = conexion.createChannel();
+            if (respuestasDirectas != null) {
+                // Debe consumir antes de la primera publicación con este reply-to
+                canal.basicConsume(RESPUESTA_DIRECTA, true, respuestasDirectas, consumerTag -> {});
+            }
+            if (!confirmaciones) {
+                return;
+            }
+            // Cada canal numera sus delivery tags desde 1, así que el mapa de
+            // pendientes va ligado al canal concreto y se descarta con él
+            ConcurrentNavigableMap<Long, CompletableFuture<Void>> pendientes = new ConcurrentSkipListMap<>();
+            sinConfirmar = pendientes;
+            canal.confirmSelect();
+            canal.addConfirmListener(new ConfirmListener() {
+                @Override
+                public void handleAck(long deliveryTag, boolean multiple) {
+                    resolver(pendientes, deliveryTag, multiple, null);
+                }
+
+                @Override
+                public void handleNack(long deliveryTag, boolean multiple) {
+                    resolver(pendientes, deliveryTag, multiple,
+                        new IOException("El broker rechazó la publicación (nack)"));
+                }
+            });
+            canal.addShutdownListener(causa -> {
+                IOException error = new IOException("Canal cerrado antes de confirmar la publicación", causa);
+                pendientes.values().forEach(f -> f.completeExceptionally(error));
+                pendientes.clear();
+            });
+        }
+
+        private static void resolver(ConcurrentNavigableMap<Long, CompletableFuture<Void>> pendientes,
+                                     long deliveryTag, boolean multiple, Exception error) {
+            Collection<CompletableFuture<Void>> afectados = multiple
+                ? pendientes.headMap(deliveryTag, true).values()
+                : Collections.singleton(pendientes.get(deliveryTag));
+            for (CompletableFuture<Void> f : afectados) {
+                if (f == null) {
+                    continue;
+                }
+                if (error == null) {
+                    f.complete(null);
+                } else {
+                    f.completeExceptionally(error);
+                }
+            }
+            if (multiple) {
+                pendientes.headMap(deliveryTag, true).clear();
+            } else {
+                pendientes.remove(deliveryTag);
+            }
+        }
+
+        CompletableFuture<Void> publicar(String exchange, String routingKey,
+                                         AMQP.BasicProperties props, byte[] body) throws IOException {
+            cerrojo.lock();
+            try {
+                if (!canal.isOpen() && conexion.isOpen()) {
+                    abrirCanal();
+                }
+                return publicarEnCanal(exchange, routingKey, props, body);
+            } finally {
+                cerrojo.unlock();
+            }
+        }
+
+        List<CompletableFuture<Void>> publicarLote(String exchange, String routingKey,
+                                                  List<Mensaje> mensajes) throws IOException {
+            cerrojo.lock();
+            try {
+                if (!canal.isOpen() && conexion.isOpen()) {
+                    abrirCanal();
+                }
+                List<CompletableFuture<Void>> confirmaciones = new ArrayList<>(mensajes.size());
+                for (int i = 0; i < mensajes.size(); i++) {
+                    Mensaje mensaje = mensajes.get(i);
+                    try {
+                        confirmaciones.add(publicarEnCanal(exchange, routingKey, mensaje.props, mensaje.body));
+                    } catch (IOException | RuntimeException e) {
+                        if (i == 0) {
+                            throw e;
+                        }
+                        // Los ya publicados tendrán respuesta; sólo falla la cola que no salió
+                        CompletableFuture<Void> noPublicado = CompletableFuture.failedFuture(
+                            new IOException("lote interrumpido antes de este mensaje (" + e.getMessage() + ")", e));
+                        for (int j = i; j < mensajes.size(); j++) {
+                            confirmaciones.add(noPublicado);
+                        }
+                        break;
+                    }
+                }
+                return confirmaciones;
+            } finally {
+                cerrojo.unlock();
+            }
+        }
+
+        private CompletableFuture<Void> publicarEnCanal(String exchange, String routingKey,
+                                                        AMQP.BasicProperties props, byte[] body) throws IOException {
+            if (!confirmaciones) {
+                canal.basicPublish(exchange, routingKey, props, body);
+                return CONFIRMADO;
+            }
+            long deliveryTag = canal.getNextPublishSeqNo();
+            CompletableFuture<Void> confirmacion = new CompletableFuture<>();
+            sinConfirmar.put(deliveryTag, confirmacion);
+            try {
+                canal.basicPublish(exchange, routingKey, props, body);
+            } catch (IOException | RuntimeException e) {
+                sinConfirmar.remove(deliveryTag);
+                throw e;
+            }
+            return confirmacion;
+        }
+
+        void cerrar() {
+            cerrojo.lock();
+            try {
+                if (canal.isOpen()) {
+                    canal.close();
+                }
+            } catch (Exception ignored) {
+            } finally {
+                cerrojo.unlock();
+            }
+        }
+    }
+}
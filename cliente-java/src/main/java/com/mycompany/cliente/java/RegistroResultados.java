@@ -0,0 +1,394 @@
+package com.mycompany.cliente.java;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Registro binario de resultados de una prueba de carga: un registro de
+ * tamaño fijo por petición, escrito en un archivo mapeado en memoria en
+ * cuanto llega la respuesta. Nada queda retenido en el heap, así que una
+ * prueba de millones de peticiones usa la misma memoria que una de mil, y
+ * el análisis posterior ({@link #analizar}) recorre el archivo sin volver a
+ * interpretar ninguna respuesta.
+ *
+ * Formato (little-endian): cabecera de 64 bytes con mágico, versión,
+ * tamaño de registro, instante de inicio (epoch ms) y número de registros
+ * (-1 mientras la prueba está en curso), seguida de registros de 32 bytes:
+ * <pre>
+ *   0  long  número de petición
+ *   8  long  envío programado, ns desde el inicio
+ *  16  long  respuesta, ns desde el inicio
+ *  24  short estado (1 éxito, 2 error, 3 timeout, 4 excepción)
+ *  26  short indicadores (bit 0: fuera del calentamiento)
+ *  28  int   categoría de error, 0 si no hay
+ * </pre>
+ * Las categorías son los mensajes de error con los números colapsados,
+ * como en las métricas; se numeran al aparecer y sus textos van a
+ * &lt;archivo&gt;.categorias, una por línea en orden de id.
+ */
+public class RegistroResultados implements Closeable {
+    static final int MAGICO = 0x52455331;
+    static final int VERSION = 1;
+    static final int CABECERA = 64;
+    static final int TAMANO_REGISTRO = 32;
+    /** Registros por tramo mapeado: 64 MB. */
+    private static final int POR_TRAMO = 1 << 21;
+    private static final int MAX_CATEGORIAS = 4096;
+
+    public static final short EXITO = 1;
+    public static final short ERROR = 2;
+    public static final short TIMEOUT = 3;
+    public static final short EXCEPCION = 4;
+    static final short MEDIDA = 1;
+
+    private final Path ruta;
+    private final FileChannel canal;
+    private final long inicioNanos;
+    private final AtomicLong siguiente = new AtomicLong();
+    private final AtomicInteger escribiendo = new AtomicInteger();
+    private volatile boolean cerrado;
+    private final Map<Long, MappedByteBuffer> tramos = new ConcurrentHashMap<>();
+    private final Map<String, Integer> categorias = new ConcurrentHashMap<>();
+    private final Writer archivoCategorias;
+    private final ReentrantLock cerrojo = new ReentrantLock();
+
+    /**
+     * Crea (o sobrescribe) el archivo.
+     *
+     * @param inicioNanos System.nanoTime del inicio de la prueba, al que se
+     *                    refieren los instantes de los registros
+     */
+    public RegistroResultados(Path ruta, long inicioNanos) throws IOException {
+        this.ruta = ruta;
+        this.inicioNanos = inicioNanos;
+        this.canal = FileChannel.open(ruta, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.archivoCategorias = Files.newBufferedWriter(archivoCategorias(ruta), StandardCharsets.UTF_8);
+        escribirCabecera(-1);
+    }
+
+    public static Path archivoCategorias(Path ruta) {
+        return Paths.get(ruta + ".categorias");
+    }
+
+    /**
+     * Anota el resultado de una petición. Lo pueden llamar varios hilos a
+     * la vez; los registros quedan en orden de llegada de las respuestas.
+     */
+    public void anotar(long id, long enviadoNanos, long completadoNanos,
+                       ResultadoRegistro resultado, Throwable error, boolean medida) {
+        escribiendo.incrementAndGet();
+        try {
+            if (cerrado) {
+                return;
+            }
+            short estado;
+            int categoria = 0;
+            if (error != null) {
+                estado = EXCEPCION;
+                categoria = categoria(error.getMessage());
+            } else if (resultado == ResultadoRegistro.TIMEOUT) {
+                estado = TIMEOUT;
+            } else if (resultado.esExitoso()) {
+                estado = EXITO;
+            } else {
+                estado = ERROR;
+                categoria = categoria(resultado.getMensaje());
+            }
+
+            long n = siguiente.getAndIncrement();
+            ByteBuffer b = tramo(n / POR_TRAMO);
+            int desplazamiento = (int) (n % POR_TRAMO) * TAMANO_REGISTRO;
+            b.putLong(desplazamiento, id);
+            b.putLong(desplazamiento + 8, enviadoNanos - inicioNanos);
+            b.putLong(desplazamiento + 16, completadoNanos - inicioNanos);
+            b.putShort(desplazamiento + 26, medida ? MEDIDA : 0);
+            b.putInt(desplazamiento + 28, categoria);
+            // El estado va el último: un registro con estado 0 no se llegó a escribir
+            b.putShort(desplazamiento + 24, estado);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            escribiendo.decrementAndGet();
+        }
+    }
+
+    public long getRegistros() {
+        return siguiente.get();
+    }
+
+    public Path getRuta() {
+        return ruta;
+    }
+
+    /**
+     * Tramo mapeado para el índice dado. Las respuestas llegan casi en
+     * orden, así que al abrir uno nuevo se sueltan los anteriores salvo el
+     * inmediato; si un rezagado necesita uno soltado se vuelve a mapear.
+     */
+    private ByteBuffer tramo(long indice) throws IOException {
+        MappedByteBuffer b = tramos.get(indice);
+        if (b != null) {
+            return b;
+        }
+        cerrojo.lock();
+        try {
+            b = tramos.get(indice);
+            if (b == null) {
+                long tamano = (long) POR_TRAMO * TAMANO_REGISTRO;
+                b = canal.map(FileChannel.MapMode.READ_WRITE, CABECERA + indice * tamano, tamano);
+                b.order(ByteOrder.LITTLE_ENDIAN);
+                tramos.put(indice, b);
+                tramos.keySet().removeIf(k -> k < indice - 1);
+            }
+            return b;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    private int categoria(String mensaje) {
+        String texto = MetricasCliente.categoria(mensaje);
+        Integer id = categorias.get(texto);
+        if (id != null) {
+            return id;
+        }
+        cerrojo.lock();
+        try {
+            id = categorias.get(texto);
+            if (id == null) {
+                if (categorias.size() >= MAX_CATEGORIAS - 1) {
+                    texto = "(otras)";
+                    id = categorias.get(texto);
+                    if (id != null) {
+                        return id;
+                    }
+                }
+                id = categorias.size() + 1;
+                archivoCategorias.write(escapar(texto));
+                archivoCategorias.write('\n');
+                archivoCategorias.flush();
+                categorias.put(texto, id);
+            }
+            return id;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    private void escribirCabecera(long registros) throws IOException {
+        ByteBuffer cabecera = ByteBuffer.allocate(CABECERA).order(ByteOrder.LITTLE_ENDIAN);
+        cabecera.putInt(MAGICO).putInt(VERSION).putInt(TAMANO_REGISTRO).putInt(0);
+        cabecera.putLong(System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicioNanos));
+        cabecera.putLong(registros);
+        cabecera.clear();
+        canal.write(cabecera, 0);
+    }
+
+    /**
+     * Espera a las escrituras en curso, lleva a disco todos los registros,
+     * incluidos los de tramos ya soltados, y sólo entonces completa la
+     * cabecera y recorta el archivo al último registro. Las respuestas que lleguen después se
+     * descartan.
+     */
+    @Override
+    public void close() throws IOException {
+        cerrado = true;
+        while (escribiendo.get() > 0) {
+            Thread.onSpinWait();
+        }
+        long registros = siguiente.get();
+        for (MappedByteBuffer b : tramos.values()) {
+            b.force();
+        }
+        tramos.clear();
+        // Los tramos que tramo() ya soltó no están en el mapa; sus páginas
+        // siguen sucias en la caché del archivo hasta este force
+        canal.force(true);
+        escribirCabecera(registros);
+        canal.truncate(CABECERA + registros * TAMANO_REGISTRO);
+        canal.force(true);
+        canal.close();
+        archivoCategorias.close();
+    }
+
+    private static String escapar(String texto) {
+        return texto.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String desescapar(String linea) {
+        StringBuilder sb = new StringBuilder(linea.length());
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (c == '\\' && i + 1 < linea.length()) {
+                char s = linea.charAt(++i);
+                sb.append(s == 'n' ? '\n' : s == 'r' ? '\r' : s);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Recorre un archivo de resultados. La línea temporal se agrupa en
+     * intervalos de un segundo o más, de modo que nunca tenga más de
+     * maxIntervalos filas sea cual sea la duración de la prueba.
+     */
+    public static Analisis analizar(Path ruta, int maxIntervalos) throws IOException {
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            ByteBuffer cabecera = ByteBuffer.allocate(CABECERA).order(ByteOrder.LITTLE_ENDIAN);
+            while (cabecera.hasRemaining() && canal.read(cabecera, cabecera.position()) > 0) {
+                // leer la cabecera completa
+            }
+            cabecera.flip();
+            if (cabecera.remaining() < CABECERA || cabecera.getInt(0) != MAGICO) {
+                throw new IOException(ruta + " no es un archivo de resultados");
+            }
+            if (cabecera.getInt(4) != VERSION || cabecera.getInt(8) != TAMANO_REGISTRO) {
+                throw new IOException(ruta + ": versión " + cabecera.getInt(4) + " no soportada");
+            }
+            Analisis a = new Analisis();
+            a.inicioEpochMillis = cabecera.getLong(16);
+            long declarados = cabecera.getLong(24);
+            long enArchivo = (canal.size() - CABECERA) / TAMANO_REGISTRO;
+            // Sin cierre ordenado (-1) se aprovecha lo que haya en el archivo
+            a.completo = declarados >= 0;
+            long registros = a.completo ? Math.min(declarados, enArchivo) : enArchivo;
+
+            Path categorias = archivoCategorias(ruta);
+            if (Files.exists(categorias)) {
+                for (String linea : Files.readAllLines(categorias, StandardCharsets.UTF_8)) {
+                    a.categorias.add(desescapar(linea));
+                }
+            }
+            a.erroresPorCategoria = new long[a.categorias.size() + 2];
+
+            // Duración hasta la respuesta más tardía. Un archivo sin cerrar
+            // termina en ranuras a cero y el último registro escrito no es
+            // necesariamente el último en completarse, así que hace falta una
+            // primera pasada sobre los registros con estado
+            long[] ultimo = {0};
+            recorrer(canal, registros, (b, desplazamiento) -> {
+                if (b.getShort(desplazamiento + 24) != 0) {
+                    ultimo[0] = Math.max(ultimo[0], b.getLong(desplazamiento + 16));
+                }
+            });
+            long segundos = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(ultimo[0]) + 1);
+            a.anchoIntervaloNanos = TimeUnit.SECONDS.toNanos((segundos + maxIntervalos - 1) / Math.max(1, maxIntervalos));
+            a.intervalos = new Intervalo[(int) ((TimeUnit.SECONDS.toNanos(segundos) + a.anchoIntervaloNanos - 1) / a.anchoIntervaloNanos)];
+            for (int i = 0; i < a.intervalos.length; i++) {
+                a.intervalos[i] = new Intervalo();
+            }
+
+            recorrer(canal, registros, a::contabilizar);
+            return a;
+        }
+    }
+
+    /** Mapea los registros por tramos y pasa cada uno con su desplazamiento. */
+    private static void recorrer(FileChannel canal, long registros, ObjIntConsumer<ByteBuffer> visita)
+            throws IOException {
+        for (long desde = 0; desde < registros; desde += POR_TRAMO) {
+            int n = (int) Math.min(POR_TRAMO, registros - desde);
+            MappedByteBuffer b = canal.map(FileChannel.MapMode.READ_ONLY,
+                CABECERA + desde * TAMANO_REGISTRO, (long) n * TAMANO_REGISTRO);
+            b.order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < n; i++) {
+                visita.accept(b, i * TAMANO_REGISTRO);
+            }
+        }
+    }
+
+    public static final class Intervalo {
+        long enviadas;
+        long completadas;
+        long fallidas;
+        final HistogramaLatencia latencias = new HistogramaLatencia();
+    }
+
+    public static final class Analisis {
+        long inicioEpochMillis;
+        boolean completo;
+        long registros;
+        long medidas;
+        long exitosos;
+        long errores;
+        long timeouts;
+        long excepciones;
+        long primeraRespuestaNanos = Long.MAX_VALUE;
+        long ultimaRespuestaNanos;
+        final HistogramaLatencia latencias = new HistogramaLatencia();
+        final List<String> categorias = new ArrayList<>();
+        long[] erroresPorCategoria;
+        long anchoIntervaloNanos;
+        Intervalo[] intervalos;
+
+        private void contabilizar(ByteBuffer b, int desplazamiento) {
+            short estado = b.getShort(desplazamiento + 24);
+            if (estado == 0) {
+                return;
+            }
+            registros++;
+            long enviado = b.getLong(desplazamiento + 8);
+            long completado = b.getLong(desplazamiento + 16);
+            long latencia = TimeUnit.NANOSECONDS.toMicros(completado - enviado);
+            intervalo(enviado).enviadas++;
+            Intervalo fin = intervalo(completado);
+            fin.completadas++;
+            fin.latencias.registrar(latencia);
+            if (estado != EXITO) {
+                fin.fallidas++;
+            }
+            if ((b.getShort(desplazamiento + 26) & MEDIDA) == 0) {
+                return;
+            }
+            medidas++;
+            latencias.registrar(latencia);
+            primeraRespuestaNanos = Math.min(primeraRespuestaNanos, completado);
+            ultimaRespuestaNanos = Math.max(ultimaRespuestaNanos, completado);
+            switch (estado) {
+                case EXITO: exitosos++; break;
+                case TIMEOUT: timeouts++; break;
+                case EXCEPCION: excepciones++; break;
+                default: errores++;
+            }
+            int categoria = b.getInt(desplazamiento + 28);
+            if (categoria > 0) {
+                erroresPorCategoria[Math.min(categoria, erroresPorCategoria.length - 1)]++;
+            }
+        }
+
+        private Intervalo intervalo(long nanos) {
+            int i = (int) Math.max(0, Math.min(intervalos.length - 1, nanos / anchoIntervaloNanos));
+            return intervalos[i];
+        }
+
+        /** Nombre de la categoría; las que falten en el archivo de categorías salen como #id. */
+        public String getCategoria(int id) {
+            return id >= 1 && id <= categorias.size() ? categorias.get(id - 1) : "(categoría #" + id + ")";
+        }
+
+        public double getThroughput() {
+            long nanos = ultimaRespuestaNanos - primeraRespuestaNanos;
+            return medidas < 2 || nanos <= 0 ? medidas : (medidas - 1) / (nanos / 1e9);
+        }
+    }
+}
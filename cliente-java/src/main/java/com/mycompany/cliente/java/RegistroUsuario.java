@@ -0,0 +1,66 @@
+package com.mycompany.cliente.java;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.*;
+
+/**
+ * Solicitud de registro tal como la espera LP2 en la cola validate_dni.
+ * Sustituye al Map&lt;String, Object&gt; que se construía por cada petición;
+ * se serializa con el ObjectWriter precompilado de {@link CodecMensajes}.
+ * Al leer se ignoran los campos desconocidos, que son habituales en las
+ * exportaciones que se importan en masa.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RegistroUsuario {
+    private String nombre;
+    private String correo;
+    private String clave;
+    private String dni;
+    private String telefono;
+    private List<String> amigos;
+
+    public RegistroUsuario() {
+    }
+
+    public RegistroUsuario(String nombre, String correo, String clave, String dni,
+                           String telefono, List<String> amigos) {
+        this.nombre = nombre;
+        this.correo = correo;
+        this.clave = clave;
+        this.dni = dni;
+        this.telefono = telefono;
+        this.amigos = amigos;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static RegistroUsuario desdeMapa(Map<String, Object> userData) {
+        Object amigos = userData.get("amigos");
+        return new RegistroUsuario(
+            (String) userData.get("nombre"),
+            (String) userData.get("correo"),
+            (String) userData.get("clave"),
+            (String) userData.get("dni"),
+            (String) userData.get("telefono"),
+            amigos instanceof List ? (List<String>) amigos : null);
+    }
+
+    public String getNombre() { return nombre; }
+    public void setNombre(String nombre) { this.nombre = nombre; }
+
+    public String getCorreo() { return correo; }
+    public void setCorreo(String correo) { this.correo = correo; }
+
+    public String getClave() { return clave; }
+    public void setClave(String clave) { this.clave = clave; }
+
+    public String getDni() { return dni; }
+    public void setDni(String dni) { this.dni = dni; }
+
+    public String getTelefono() { return telefono; }
+    public void setTelefono(String telefono) { this.telefono = telefono; }
+
+    public List<String> getAmigos() { return amigos; }
+    public void setAmigos(List<String> amigos) { this.amigos = amigos; }
+}
@@ -0,0 +1,81 @@
+package com.mycompany.cliente.java;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Respuesta de LP2 a una consulta de DNI (routing key "query").
+ *
+ * LP2 responde con status "success" y los datos de dni_registro, o con
+ * "not_found" si el DNI no existe. Cualquier otro estado, o un resultado
+ * generado localmente (timeout, fallo de publicación), es un error y no se
+ * guarda en la caché.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ResultadoConsulta {
+    private String status;
+    @JsonProperty("message")
+    private String mensaje;
+    private String dni;
+    private String nombre;
+    private String apellidos;
+    @JsonProperty("lugar_nacimiento")
+    private String lugarNacimiento;
+    private String direccion;
+
+    public ResultadoConsulta() {
+    }
+
+    public static ResultadoConsulta error(String mensaje) {
+        ResultadoConsulta r = new ResultadoConsulta();
+        r.status = "error";
+        r.mensaje = mensaje;
+        return r;
+    }
+
+    /** Interpreta la respuesta recibida por la cola de respuestas compartida. */
+    static ResultadoConsulta desde(ResultadoRegistro respuesta) {
+        if (respuesta.getCuerpo() == null) {
+            return error(respuesta.getMensaje());
+        }
+        try {
+            return CodecMensajes.leerConsulta(respuesta.getCuerpo());
+        } catch (Exception e) {
+            return error("Respuesta ilegible: " + e.getMessage());
+        }
+    }
+
+    public boolean esEncontrado() {
+        return "success".equals(status);
+    }
+
+    public boolean esNoEncontrado() {
+        return "not_found".equals(status);
+    }
+
+    /** Sólo las respuestas definitivas de LP2 se pueden reutilizar. */
+    public boolean esCacheable() {
+        return esEncontrado() || esNoEncontrado();
+    }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getMensaje() { return mensaje; }
+    public void setMensaje(String mensaje) { this.mensaje = mensaje; }
+
+    public String getDni() { return dni; }
+    public void setDni(String dni) { this.dni = dni; }
+
+    public String getNombre() { return nombre; }
+    public void setNombre(String nombre) { this.nombre = nombre; }
+
+    public String getApellidos() { return apellidos; }
+    public void setApellidos(String apellidos) { this.apellidos = apellidos; }
+
+    public String getLugarNacimiento() { return lugarNacimiento; }
+    public void setLugarNacimiento(String lugarNacimiento) { this.lugarNacimiento = lugarNacimiento; }
+
+    public String getDireccion() { return direccion; }
+    public void setDireccion(String direccion) { this.direccion = direccion; }
+}
@@ -0,0 +1,144 @@
+package com.mycompany.cliente.java;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Respuesta de LP2 o LP1 a una solicitud de registro.
+ *
+ * Se construye directamente sobre el byte[] recibido del broker, sin pasar
+ * por String. El cuerpo sólo se recorre la primera vez que se pide un campo,
+ * en una única pasada que extrae status, message, user_id y
+ * amigos_guardados y salta el resto.
+ */
+public final class ResultadoRegistro {
+    public static final ResultadoRegistro TIMEOUT = error("Timeout esperando respuesta");
+
+    private final byte[] cuerpo;
+    private final long llegadaNanos;
+    private volatile boolean decodificado;
+    private String status;
+    private String mensaje;
+    private Long userId;
+    private List<String> amigosGuardados;
+
+    private ResultadoRegistro(byte[] cuerpo, long llegadaNanos) {
+        this.cuerpo = cuerpo;
+        this.llegadaNanos = llegadaNanos;
+    }
+
+    public static ResultadoRegistro desdeBytes(byte[] cuerpo) {
+        return new ResultadoRegistro(cuerpo, System.nanoTime());
+    }
+
+    /** Resultado generado localmente (timeout, fallo de publicación...). */
+    public static ResultadoRegistro error(String mensaje) {
+        ResultadoRegistro r = new ResultadoRegistro(null, 0);
+        r.status = "error";
+        r.mensaje = mensaje;
+        r.decodificado = true;
+        return r;
+    }
+
+    public String getStatus() {
+        decodificar();
+        return status;
+    }
+
+    public boolean esExitoso() {
+        return "success".equals(getStatus());
+    }
+
+    public String getMensaje() {
+        decodificar();
+        return mensaje;
+    }
+
+    public Long getUserId() {
+        decodificar();
+        return userId;
+    }
+
+    public List<String> getAmigosGuardados() {
+        decodificar();
+        return amigosGuardados;
+    }
+
+    /** Instante (System.nanoTime) en que llegó la respuesta; 0 si el resultado es local. */
+    public long getLlegadaNanos() {
+        return llegadaNanos;
+    }
+
+    /**
+     * Si el resultado se generó en el cliente (timeout, fallo de publicación
+     * o de confirmación) en lugar de ser una respuesta de LP2 o LP1.
+     */
+    public boolean esLocal() {
+        return cuerpo == null;
+    }
+
+    /** Cuerpo original tal como llegó, o null si el resultado es local. */
+    public byte[] getCuerpo() {
+        return cuerpo;
+    }
+
+    private void decodificar() {
+        if (decodificado) {
+            return;
+        }
+        synchronized (this) {
+            if (decodificado) {
+                return;
+            }
+            try (JsonParser parser = CodecMensajes.parser(cuerpo)) {
+                leerCampos(parser);
+            } catch (IOException | RuntimeException e) {
+                status = "error";
+                mensaje = "Respuesta ilegible: " + e.getMessage();
+            }
+            decodificado = true;
+        }
+    }
+
+    private void leerCampos(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("se esperaba un objeto JSON");
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String campo = parser.getCurrentName();
+            JsonToken valor = parser.nextToken();
+            switch (campo) {
+                case "status":
+                    status = parser.getValueAsString();
+                    break;
+                case "message":
+                    mensaje = parser.getValueAsString();
+                    break;
+                case "user_id":
+                    userId = valor.isNumeric() ? parser.getLongValue() : null;
+                    break;
+                case "amigos_guardados":
+                    if (valor == JsonToken.START_ARRAY) {
+                        amigosGuardados = new ArrayList<>();
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            amigosGuardados.add(parser.getValueAsString());
+                        }
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        if (cuerpo != null) {
+            return new String(cuerpo, StandardCharsets.UTF_8);
+        }
+        return "{\"status\":\"" + status + "\",\"message\":\"" + mensaje + "\"}";
+    }
+}
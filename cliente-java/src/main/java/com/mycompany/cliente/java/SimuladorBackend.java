@@ -0,0 +1,248 @@
+package com.mycompany.cliente.java;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Simulación en proceso del recorrido validate_dni (LP2) → save_user (LP1)
+ * y de las consultas de DNI, con las mismas respuestas que los servicios
+ * reales.
+ *
+ * BD2 contiene los cinco DNIs de init de LP2 (o todos, si se pide); BD1
+ * empieza vacía y guarda cada usuario con DNI y correo únicos, así que los
+ * duplicados fallan igual que en PostgreSQL.
+ *
+ * Cada servicio tiene una latencia por mensaje y un número de
+ * trabajadores: un mensaje espera a que quede libre uno y lo ocupa durante
+ * la latencia, como las colas con prefetch de los servicios reales. No hay
+ * hilos durmiendo; un único hilo entrega cada etapa en el instante en que
+ * termina.
+ */
+public class SimuladorBackend implements AutoCloseable {
+
+    public enum DistribucionLatencia { FIJA, EXPONENCIAL }
+
+    public static final class Parametros {
+        long latenciaLp2Micros = 2000;
+        long latenciaLp1Micros = 3000;
+        DistribucionLatencia distribucion = DistribucionLatencia.FIJA;
+        /** Cero o menos para capacidad ilimitada. */
+        int trabajadoresLp2 = 5;
+        int trabajadoresLp1 = 1;
+        /** Proporción de guardados que fallan en LP1 con un error simulado. */
+        double proporcionErrores = 0;
+        boolean correoUnico = true;
+        /** Aceptar cualquier DNI de 8 dígitos en BD2, no sólo los cinco de prueba. */
+        boolean todosLosDniValidos = false;
+    }
+
+    private static final Map<String, String[]> BD2 = new HashMap<>();
+
+    static {
+        BD2.put("20453629", new String[] {"Juan", "Pérez García", "Lima", "Av. Principal 123"});
+        BD2.put("12345678", new String[] {"María", "López Díaz", "Cusco", "Jr. Secundario 456"});
+        BD2.put("87654321", new String[] {"Carlos", "Rodríguez Soto", "Arequipa", "Calle Tercera 789"});
+        BD2.put("11111111", new String[] {"Ana", "Martínez Ruiz", "Trujillo", "Av. Libertad 111"});
+        BD2.put("22222222", new String[] {"Luis", "García López", "Piura", "Calle Mayor 222"});
+    }
+
+    private final Parametros p;
+    private final Etapa lp2;
+    private final Etapa lp1;
+    private final ScheduledExecutorService reloj;
+    private final Map<String, Long> usuariosPorDni = new ConcurrentHashMap<>();
+    private final Set<String> correos = ConcurrentHashMap.newKeySet();
+    private final AtomicLong siguienteId = new AtomicLong();
+
+    public SimuladorBackend(Parametros p) {
+        this.p = p;
+        this.lp2 = new Etapa(p.trabajadoresLp2, p.latenciaLp2Micros * 1000, p.distribucion);
+        this.lp1 = new Etapa(p.trabajadoresLp1, p.latenciaLp1Micros * 1000, p.distribucion);
+        this.reloj = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "loopback-backend");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Equivalente a publicar en el exchange validation con esa routing key. */
+    public void recibir(String routingKey, String correlationId, byte[] cuerpo, BiConsumer<String, byte[]> responder) {
+        long ahora = System.nanoTime();
+        if ("query".equals(routingKey)) {
+            programar(lp2.reservar(ahora), () -> responder.accept(correlationId, consultar(cuerpo)));
+        } else if ("check".equals(routingKey)) {
+            long finLp2 = lp2.reservar(ahora);
+            programar(finLp2, () -> {
+                RegistroUsuario usuario;
+                try {
+                    usuario = CodecMensajes.leerRegistro(cuerpo, 0, cuerpo.length);
+                } catch (IOException e) {
+                    responder.accept(correlationId, error(e.getMessage()));
+                    return;
+                }
+                byte[] rechazo = validar(usuario);
+                if (rechazo != null) {
+                    responder.accept(correlationId, rechazo);
+                    return;
+                }
+                programar(lp1.reservar(finLp2), () -> responder.accept(correlationId, guardar(usuario)));
+            });
+        }
+        // Otras routing keys no tienen cola enlazada: el broker las descarta
+    }
+
+    private void programar(long instante, Runnable tarea) {
+        try {
+            reloj.schedule(tarea, instante - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException ignored) {
+            // Simulador cerrado: la petición expirará por timeout
+        }
+    }
+
+    private boolean enBd2(String dni) {
+        return p.todosLosDniValidos ? IndiceDni.codificar(dni) >= 0 : BD2.containsKey(dni);
+    }
+
+    /** validateDNI de LP2. */
+    private byte[] validar(RegistroUsuario usuario) {
+        if (!enBd2(usuario.getDni())) {
+            return error("DNI " + usuario.getDni() + " no encontrado en BD2");
+        }
+        if (usuario.getAmigos() != null) {
+            List<String> invalidos = new ArrayList<>();
+            for (String amigo : usuario.getAmigos()) {
+                if (!enBd2(amigo)) {
+                    invalidos.add(amigo);
+                }
+            }
+            if (!invalidos.isEmpty()) {
+                return error("DNIs de amigos no encontrados: " + String.join(", ", invalidos));
+            }
+        }
+        return null;
+    }
+
+    /** save_user de LP1. */
+    private byte[] guardar(RegistroUsuario usuario) {
+        if (p.proporcionErrores > 0 && ThreadLocalRandom.current().nextDouble() < p.proporcionErrores) {
+            return error("Error simulado en LP1");
+        }
+        if (usuariosPorDni.containsKey(usuario.getDni())) {
+            return error("Usuario con DNI " + usuario.getDni() + " ya existe");
+        }
+        if (p.correoUnico && !correos.add(usuario.getCorreo())) {
+            return error("duplicate key value violates unique constraint \"usuarios_correo_key\"\n"
+                + "DETAIL:  Key (correo)=(" + usuario.getCorreo() + ") already exists.\n");
+        }
+        long id = siguienteId.incrementAndGet();
+        usuariosPorDni.put(usuario.getDni(), id);
+
+        List<String> amigosGuardados = new ArrayList<>();
+        if (usuario.getAmigos() != null) {
+            for (String amigo : usuario.getAmigos()) {
+                if (usuariosPorDni.containsKey(amigo)) {
+                    amigosGuardados.add(amigo);
+                }
+            }
+        }
+        Map<String, Object> respuesta = new LinkedHashMap<>();
+        respuesta.put("status", "success");
+        respuesta.put("message", "Usuario " + usuario.getNombre() + " guardado correctamente");
+        respuesta.put("user_id", id);
+        respuesta.put("amigos_guardados", amigosGuardados);
+        return CodecMensajes.escribir(respuesta);
+    }
+
+    /** queryDNI de LP2. */
+    private byte[] consultar(byte[] cuerpo) {
+        String dni;
+        try (var parser = CodecMensajes.parser(cuerpo)) {
+            dni = null;
+            while (parser.nextToken() != null) {
+                if ("dni".equals(parser.getCurrentName()) && parser.currentToken().isScalarValue()) {
+                    dni = parser.getValueAsString();
+                }
+            }
+        } catch (IOException e) {
+            return error(e.getMessage());
+        }
+        Map<String, Object> respuesta = new LinkedHashMap<>();
+        String[] fila = BD2.get(dni);
+        if (fila == null && !(p.todosLosDniValidos && enBd2(dni))) {
+            respuesta.put("status", "not_found");
+            respuesta.put("message", "DNI " + dni + " no encontrado en BD2");
+            respuesta.put("dni", dni);
+        } else {
+            respuesta.put("status", "success");
+            respuesta.put("dni", dni);
+            respuesta.put("nombre", fila != null ? fila[0] : "Simulado");
+            respuesta.put("apellidos", fila != null ? fila[1] : dni);
+            respuesta.put("lugar_nacimiento", fila != null ? fila[2] : null);
+            respuesta.put("direccion", fila != null ? fila[3] : null);
+        }
+        return CodecMensajes.escribir(respuesta);
+    }
+
+    private static byte[] error(String mensaje) {
+        Map<String, Object> respuesta = new LinkedHashMap<>();
+        respuesta.put("status", "error");
+        respuesta.put("message", mensaje);
+        return CodecMensajes.escribir(respuesta);
+    }
+
+    public long getUsuariosGuardados() {
+        return usuariosPorDni.size();
+    }
+
+    @Override
+    public void close() {
+        reloj.shutdownNow();
+    }
+
+    /**
+     * Un servicio con n trabajadores: cada mensaje empieza cuando llega y
+     * hay uno libre, y lo ocupa durante su latencia.
+     */
+    private static final class Etapa {
+        private final PriorityQueue<Long> libres;
+        private final long latenciaNanos;
+        private final DistribucionLatencia distribucion;
+        private final ReentrantLock cerrojo = new ReentrantLock();
+
+        Etapa(int trabajadores, long latenciaNanos, DistribucionLatencia distribucion) {
+            this.latenciaNanos = latenciaNanos;
+            this.distribucion = distribucion;
+            if (trabajadores > 0) {
+                libres = new PriorityQueue<>(trabajadores);
+                long ahora = System.nanoTime();
+                for (int i = 0; i < trabajadores; i++) {
+                    libres.add(ahora);
+                }
+            } else {
+                libres = null;
+            }
+        }
+
+        /** @return instante (System.nanoTime) en que el mensaje termina esta etapa */
+        long reservar(long llegada) {
+            long servicio = distribucion == DistribucionLatencia.EXPONENCIAL
+                ? (long) (-latenciaNanos * Math.log(1 - ThreadLocalRandom.current().nextDouble()))
+                : latenciaNanos;
+            if (libres == null) {
+                return llegada + servicio;
+            }
+            cerrojo.lock();
+            try {
+                long fin = Math.max(llegada, libres.poll()) + servicio;
+                libres.add(fin);
+                return fin;
+            } finally {
+                cerrojo.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.mycompany.cliente.java;
+
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Tabla de peticiones en vuelo indexada por secuencia.
+ *
+ * En modo compacto el correlation id es un prefijo aleatorio del cliente
+ * seguido de un contador en base 36, y la entrada vive en la ranura
+ * (secuencia &amp; máscara) de un array circular: dar de alta, completar y
+ * expirar son una lectura y un CAS, sin hash ni bloqueos. Si la ranura está
+ * ocupada por una petición más antigua que aún no terminó, la entrada va a
+ * un mapa de desborde; en modo UUID todas las entradas van a ese mapa.
+ *
+ * Como todas las peticiones comparten el mismo timeout, los plazos crecen
+ * con la secuencia y el barrido avanza un cursor desde la más antigua
+ * hasta la primera que aún no ha vencido, con coste amortizado O(1). Para
+ * pasar de una ranura vacía el barrido la reserva antes de mover el
+ * cursor, así que un alta de esa secuencia que llegue a la vez o acaba en
+ * el desborde o ya ve el cursor adelantado, y nunca queda fuera del barrido.
+ */
+public class TablaPendientes {
+
+    public enum ModoIds { COMPACTO, UUID }
+
+    private static final char[] DIGITOS = "0123456789abcdefghijklmnopqrstuvwxyz".toCharArray();
+
+    private final ModoIds modo;
+    private final String prefijo;
+    private final long timeoutNanos;
+    private final AtomicReferenceArray<Entrada> ranuras;
+    private final int mascara;
+    private final Map<String, Entrada> desborde = new ConcurrentHashMap<>();
+    private final AtomicLong secuencia = new AtomicLong();
+    private final AtomicInteger enVuelo = new AtomicInteger();
+    /** Secuencia más antigua que el barrido aún no ha descartado; sólo la escribe el hilo que barre. */
+    private volatile long cursor = 1;
+    /** Marca de una ranura vacía que el barrido está saltando; sólo el barrido la pone y la quita. */
+    private static final Entrada RESERVADA = new Entrada(-1, null, null, 0);
+
+    private static final class Entrada {
+        final long secuencia;
+        final String id;
+        final CompletableFuture<ResultadoRegistro> future;
+        final long limiteNanos;
+
+        Entrada(long secuencia, String id, CompletableFuture<ResultadoRegistro> future, long limiteNanos) {
+            this.secuencia = secuencia;
+            this.id = id;
+            this.future = future;
+            this.limiteNanos = limiteNanos;
+        }
+    }
+
+    /**
+     * @param capacidad número de ranuras, redondeado a potencia de dos; las
+     *                  peticiones que no caben siguen funcionando vía desborde
+     */
+    public TablaPendientes(ModoIds modo, int capacidad, long timeoutNanos) {
+        this.modo = modo;
+        this.timeoutNanos = timeoutNanos;
+        int tamano = Integer.highestOneBit(Math.max(2, capacidad - 1)) << 1;
+        this.ranuras = new AtomicReferenceArray<>(modo == ModoIds.COMPACTO ? tamano : 1);
+        this.mascara = ranuras.length() - 1;
+        this.prefijo = Long.toString(new SecureRandom().nextLong() >>> 24, 36) + ".";
+    }
+
+    /** Da de alta la petición y devuelve su correlation id. */
+    public String registrar(CompletableFuture<ResultadoRegistro> future) {
+        long limite = System.nanoTime() + timeoutNanos;
+        if (modo == ModoIds.UUID) {
+            String id = UUID.randomUUID().toString();
+            desborde.put(id, new Entrada(0, id, future, limite));
+            enVuelo.incrementAndGet();
+            return id;
+        }
+
+        long seq = secuencia.incrementAndGet();
+        String id = codificar(seq);
+        Entrada entrada = new Entrada(seq, id, future, limite);
+        enVuelo.incrementAndGet();
+        int indice = (int) seq & mascara;
+        if (!ranuras.compareAndSet(indice, null, entrada)) {
+            desborde.put(id, entrada);
+        } else if (seq < cursor && ranuras.compareAndSet(indice, entrada, null)) {
+            // El barrido ya pasó por esta secuencia antes de que la ranura se
+            // ocupara; se mueve al desborde para que no escape a los timeouts
+            desborde.put(id, entrada);
+        }
+        return id;
+    }
+
+    /** Retira la petición y devuelve su future, o null si ya no estaba (tardía o ajena). */
+    public CompletableFuture<ResultadoRegistro> completar(String correlationId) {
+        Entrada entrada = quitar(correlationId);
+        return entrada == null ? null : entrada.future;
+    }
+
+    /** Retira la petición sólo si sigue asociada a ese future. */
+    public boolean quitar(String correlationId, CompletableFuture<ResultadoRegistro> future) {
+        long seq = decodificar(correlationId);
+        if (seq > 0) {
+            int indice = (int) seq & mascara;
+            Entrada entrada = ranuras.get(indice);
+            if (entrada != null && entrada.secuencia == seq && entrada.future == future
+                    && ranuras.compareAndSet(indice, entrada, null)) {
+                enVuelo.decrementAndGet();
+                return true;
+            }
+        }
+        Entrada entrada = desborde.get(correlationId);
+        if (entrada != null && entrada.future == future && desborde.remove(correlationId, entrada)) {
+            enVuelo.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    private Entrada quitar(String correlationId) {
+        if (correlationId == null) {
+            return null;
+        }
+        long seq = decodificar(correlationId);
+        if (seq > 0) {
+            int indice = (int) seq & mascara;
+            Entrada entrada = ranuras.get(indice);
+            if (entrada != null && entrada.secuencia == seq && ranuras.compareAndSet(indice, entrada, null)) {
+                enVuelo.decrementAndGet();
+                return entrada;
+            }
+        }
+        Entrada entrada = desborde.remove(correlationId);
+        if (entrada != null) {
+            enVuelo.decrementAndGet();
+        }
+        return entrada;
+    }
+
+    /**
+     * Retira las peticiones cuyo plazo ya venció y entrega sus futures a
+     * alExpirar. Debe llamarse siempre desde el mismo hilo.
+     */
+    public void barrerExpiradas(Consumer<CompletableFuture<ResultadoRegistro>> alExpirar) {
+        long ahora = System.nanoTime();
+        long ultima = secuencia.get();
+        long seq = cursor;
+        while (seq <= ultima) {
+            int indice = (int) seq & mascara;
+            Entrada entrada = ranuras.get(indice);
+            if (entrada == null) {
+                if (!ranuras.compareAndSet(indice, null, RESERVADA)) {
+                    // Un alta acaba de ocupar la ranura: se vuelve a mirar
+                    continue;
+                }
+                cursor = ++seq;
+                ranuras.set(indice, null);
+                continue;
+            }
+            if (entrada.secuencia == seq) {
+                if (ahora - entrada.limiteNanos < 0) {
+                    break;
+                }
+                if (ranuras.compareAndSet(indice, entrada, null)) {
+                    enVuelo.decrementAndGet();
+                    alExpirar.accept(entrada.future);
+                }
+            }
+            cursor = ++seq;
+        }
+
+        if (!desborde.isEmpty()) {
+            for (Entrada entrada : desborde.values()) {
+                if (ahora - entrada.limiteNanos >= 0 && desborde.remove(entrada.id, entrada)) {
+                    enVuelo.decrementAndGet();
+                    alExpirar.accept(entrada.future);
+                }
+            }
+        }
+    }
+
+    /** Peticiones en vuelo; es un contador, no recorre la tabla. */
+    public int getEnVuelo() {
+        return enVuelo.get();
+    }
+
+    public ModoIds getModo() {
+        return modo;
+    }
+
+    String codificar(long seq) {
+        char[] buffer = new char[prefijo.length() + 13];
+        int fin = buffer.length;
+        int pos = fin;
+        do {
+            buffer[--pos] = DIGITOS[(int) (seq % 36)];
+            seq /= 36;
+        } while (seq > 0);
+        int inicio = pos - prefijo.length();
+        prefijo.getChars(0, prefijo.length(), buffer, inicio);
+        return new String(buffer, inicio, fin - inicio);
+    }
+
+    /** @return la secuencia del id, o -1 si no es un id compacto de este cliente */
+    long decodificar(String correlationId) {
+        if (modo != ModoIds.COMPACTO || !correlationId.startsWith(prefijo)) {
+            return -1;
+        }
+        int longitud = correlationId.length();
+        if (longitud == prefijo.length() || longitud - prefijo.length() > 13) {
+            return -1;
+        }
+        long seq = 0;
+        for (int i = prefijo.length(); i < longitud; i++) {
+            int digito = Character.digit(correlationId.charAt(i), 36);
+            if (digito < 0) {
+                return -1;
+            }
+            seq = seq * 36 + digito;
+        }
+        return seq;
+    }
+}
@@ -0,0 +1,56 @@
+package com.mycompany.cliente.java;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+/**
+ * Medio por el que el cliente publica solicitudes en el exchange
+ * "validation" y recibe las respuestas.
+ *
+ * {@link TransporteAmqp} habla con RabbitMQ; {@link TransporteLoopback}
+ * resuelve todo en el propio proceso con un simulador de LP2 y LP1, para
+ * medir el cliente sin broker ni bases de datos. Cliente no depende de
+ * ninguno de los dos: correlaciona las respuestas con su tabla de
+ * pendientes sea cual sea el transporte.
+ */
+public interface Transporte extends AutoCloseable {
+
+    /**
+     * Conecta y empieza a entregar respuestas. alResponder recibe el
+     * correlation id y el cuerpo de cada respuesta, siempre desde los hilos
+     * del transporte, así que no debe bloquearse.
+     */
+    void iniciar(BiConsumer<String, byte[]> alResponder) throws Exception;
+
+    /**
+     * @return future que se completa cuando el medio acepta el mensaje (la
+     *         confirmación del broker en AMQP) o falla si lo rechaza
+     */
+    CompletableFuture<Void> publicar(String routingKey, String correlationId, byte[] cuerpo) throws IOException;
+
+    /**
+     * Publica los mensajes seguidos; un future de aceptación por mensaje, en
+     * el mismo orden. Si el envío se corta a mitad, los futures de los
+     * mensajes que no salieron fallan y los ya enviados siguen su curso; la
+     * excepción sólo se lanza cuando no se envió ninguno.
+     */
+    List<CompletableFuture<Void>> publicarLote(String routingKey, List<Mensaje> mensajes) throws IOException;
+
+    /** Una línea para el arranque y las estadísticas: servidor, canales, etc. */
+    String getDescripcion();
+
+    @Override
+    void close();
+
+    final class Mensaje {
+        final String correlationId;
+        final byte[] cuerpo;
+
+        public Mensaje(String correlationId, byte[] cuerpo) {
+            this.correlationId = correlationId;
+            this.cuerpo = cuerpo;
+        }
+    }
+}
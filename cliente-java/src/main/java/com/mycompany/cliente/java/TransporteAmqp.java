@@ -0,0 +1,215 @@
+package com.mycompany.cliente.java;
+
+import com.rabbitmq.client.*;
+import com.rabbitmq.client.impl.recovery.AutorecoveringConnection;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+
+/**
+ * Transporte sobre RabbitMQ: una conexión con un {@link PoolCanales} para
+ * publicar y, para las respuestas, una de dos opciones:
+ * <ul>
+ *   <li>N colas temporales exclusivas, cada una con su canal y su
+ *       consumidor; cada solicitud lleva en reply-to la cola que le toca
+ *       por su correlation id. El cliente AMQP entrega en paralelo los
+ *       mensajes de canales distintos, así que N consumidores reciben a la
+ *       vez en lugar de uno solo.</li>
+ *   <li>direct reply-to (amq.rabbitmq.reply-to): sin colas, el broker
+ *       entrega cada respuesta en el canal de publicación que envió la
+ *       solicitud, de modo que se reparten entre los canales del pool.</li>
+ * </ul>
+ */
+public class TransporteAmqp implements Transporte {
+
+    public static final class Parametros {
+        String host = "localhost";
+        String usuario = "admin";
+        String clave = "admin123";
+        int conexionesPublicacion = 1;
+        int canalesPublicacion = 4;
+        PoolCanales.Reparto reparto = PoolCanales.Reparto.HILO;
+        boolean confirmaciones = true;
+        /** Usar amq.rabbitmq.reply-to en lugar de colas de respuesta. */
+        boolean respuestaDirecta = false;
+        /** Colas de respuesta, cada una con su consumidor; se ignora con respuesta directa. */
+        int colasRespuesta = 1;
+        int reintentos = 10;
+        /** Espera tras el primer fallo; se dobla en cada intento hasta esperaMaximaMillis. */
+        long esperaInicialMillis = 5000;
+        long esperaMaximaMillis = 5000;
+        /** Esperar un tiempo aleatorio entre cero y la espera del intento. */
+        boolean jitter = false;
+        /** Abrir en paralelo los canales de publicación y de respuesta. */
+        boolean aperturaParalela = false;
+    }
+
+    private static final String EXCHANGE_NAME = "validation";
+
+    private final Parametros p;
+    private Connection connection;
+    private Channel[] canalesRespuesta = new Channel[0];
+    private AtomicReferenceArray<String> colasRespuesta;
+    private PoolCanales poolCanales;
+
+    public TransporteAmqp(Parametros p) {
+        this.p = p;
+    }
+
+    @Override
+    public void iniciar(BiConsumer<String, byte[]> alResponder) throws Exception {
+        ConnectionFactory factory = new ConnectionFactory();
+        factory.setHost(p.host);
+        factory.setUsername(p.usuario);
+        factory.setPassword(p.clave);
+
+        // Configuración de reconexión
+        factory.setAutomaticRecoveryEnabled(true);
+        factory.setNetworkRecoveryInterval(5000);
+
+        long espera = p.esperaInicialMillis;
+        for (int i = 0; i < p.reintentos; i++) {
+            try {
+                connection = factory.newConnection();
+                Channel channel = connection.createChannel();
+
+                // Declarar exchange
+                channel.exchangeDeclare(EXCHANGE_NAME, "direct", true);
+                channel.close();
+
+                ((Recoverable) connection).addRecoveryListener(new RecoveryListener() {
+                    @Override
+                    public void handleRecovery(Recoverable recoverable) {
+                        System.out.println("✓ Conexión con RabbitMQ recuperada");
+                    }
+
+                    @Override
+                    public void handleRecoveryStarted(Recoverable recoverable) {}
+                });
+
+                DeliverCallback deliverCallback = (consumerTag, delivery) ->
+                    alResponder.accept(delivery.getProperties().getCorrelationId(), delivery.getBody());
+
+                if (!p.respuestaDirecta) {
+                    iniciarColasRespuesta(deliverCallback);
+                }
+
+                // Canales de publicación, separados de los de respuestas
+                poolCanales = new PoolCanales(connection, factory, p.conexionesPublicacion,
+                    p.canalesPublicacion, p.reparto, p.confirmaciones,
+                    p.respuestaDirecta ? deliverCallback : null, p.aperturaParalela);
+
+                System.out.println("✓ Cliente conectado a RabbitMQ en " + p.host);
+                System.out.println("   Canales de publicación: " + poolCanales.getNumCanales()
+                    + " en " + poolCanales.getNumConexiones() + " conexión(es)"
+                    + (poolCanales.usaConfirmaciones() ? ", con confirmaciones" : ""));
+                System.out.println("   Respuestas: " + (p.respuestaDirecta ? "direct reply-to"
+                    : canalesRespuesta.length + " cola(s) con su consumidor"));
+                break;
+            } catch (Exception e) {
+                System.out.println("Intento " + (i+1) + "/" + p.reintentos + " - Error: " + e.getMessage());
+                if (connection != null) {
+                    // Un intento a medias no debe dejar una conexión viva que se recupere sola
+                    connection.abort();
+                    connection = null;
+                }
+                if (i == p.reintentos - 1) throw e;
+                // Con jitter varios clientes que arrancan a la vez no reintentan a la vez
+                Thread.sleep(p.jitter ? ThreadLocalRandom.current().nextLong(espera + 1) : espera);
+                espera = Math.min(p.esperaMaximaMillis, espera * 2);
+            }
+        }
+    }
+
+    /**
+     * Una cola temporal por consumidor. La recuperación automática las
+     * vuelve a declarar con nombres nuevos generados por el servidor, y el
+     * listener actualiza el que se pone en reply-to.
+     */
+    private void iniciarColasRespuesta(DeliverCallback deliverCallback) throws IOException, TimeoutException {
+        int n = Math.max(1, p.colasRespuesta);
+        colasRespuesta = new AtomicReferenceArray<>(n);
+        canalesRespuesta = PoolCanales.abrir(n, p.aperturaParalela, i -> {
+            Channel canal = connection.createChannel();
+            colasRespuesta.set(i, canal.queueDeclare().getQueue());
+            canal.basicConsume(colasRespuesta.get(i), true, deliverCallback, consumerTag -> {});
+            return canal;
+        }, TransporteAmqp::cerrarCanal).toArray(new Channel[0]);
+        ((AutorecoveringConnection) connection).addQueueRecoveryListener((anterior, nueva) -> {
+            for (int i = 0; i < colasRespuesta.length(); i++) {
+                if (anterior.equals(colasRespuesta.get(i))) {
+                    colasRespuesta.set(i, nueva);
+                }
+            }
+        });
+    }
+
+    private static void cerrarCanal(Channel canal) {
+        try {
+            canal.abort();
+        } catch (Exception ignored) {}
+    }
+
+    @Override
+    public CompletableFuture<Void> publicar(String routingKey, String correlationId, byte[] cuerpo) throws IOException {
+        return poolCanales.publicar(EXCHANGE_NAME, routingKey, correlationId, propiedades(correlationId), cuerpo);
+    }
+
+    @Override
+    public List<CompletableFuture<Void>> publicarLote(String routingKey, List<Mensaje> mensajes) throws IOException {
+        List<PoolCanales.Mensaje> amqp = new ArrayList<>(mensajes.size());
+        for (Mensaje m : mensajes) {
+            amqp.add(new PoolCanales.Mensaje(m.correlationId, propiedades(m.correlationId), m.cuerpo));
+        }
+        return poolCanales.publicarLote(EXCHANGE_NAME, routingKey, amqp);
+    }
+
+    private AMQP.BasicProperties propiedades(String correlationId) {
+        return new AMQP.BasicProperties
+            .Builder()
+            .correlationId(correlationId)
+            .replyTo(p.respuestaDirecta ? PoolCanales.RESPUESTA_DIRECTA
+                : colasRespuesta.get(Math.floorMod(correlationId.hashCode(), colasRespuesta.length())))
+            .build();
+    }
+
+    /**
+     * Inicializa las clases del cliente AMQP que usa el transporte sin abrir
+     * ninguna conexión, para que un archivo CDS generado con otro transporte
+     * las incluya también.
+     */
+    static void precalentar() {
+        ConnectionFactory factory = new ConnectionFactory();
+        factory.setAutomaticRecoveryEnabled(true);
+        new AMQP.BasicProperties.Builder().correlationId("0").replyTo(PoolCanales.RESPUESTA_DIRECTA).build();
+    }
+
+    @Override
+    public String getDescripcion() {
+        return "RabbitMQ " + p.host;
+    }
+
+    @Override
+    public void close() {
+        if (poolCanales != null) {
+            poolCanales.close();
+        }
+        try {
+            for (Channel canal : canalesRespuesta) {
+                if (canal.isOpen()) {
+                    canal.close();
+                }
+            }
+            if (connection != null) {
+                connection.close();
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Error al cerrar la conexión con RabbitMQ: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.mycompany.cliente.java;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+/**
+ * Transporte en memoria: cada publicación va directamente a un
+ * {@link SimuladorBackend} y las respuestas vuelven por el mismo camino que
+ * las de RabbitMQ. No hay broker que confirme, así que las publicaciones
+ * se dan por aceptadas al instante.
+ */
+public class TransporteLoopback implements Transporte {
+
+    private static final CompletableFuture<Void> ACEPTADO = CompletableFuture.completedFuture(null);
+
+    private final SimuladorBackend.Parametros p;
+    private SimuladorBackend simulador;
+    private BiConsumer<String, byte[]> alResponder;
+
+    public TransporteLoopback(SimuladorBackend.Parametros p) {
+        this.p = p;
+    }
+
+    @Override
+    public void iniciar(BiConsumer<String, byte[]> alResponder) {
+        this.alResponder = alResponder;
+        this.simulador = new SimuladorBackend(p);
+        System.out.println("✓ Cliente en modo loopback: " + getDescripcion());
+    }
+
+    @Override
+    public CompletableFuture<Void> publicar(String routingKey, String correlationId, byte[] cuerpo) {
+        simulador.recibir(routingKey, correlationId, cuerpo, alResponder);
+        return ACEPTADO;
+    }
+
+    @Override
+    public List<CompletableFuture<Void>> publicarLote(String routingKey, List<Mensaje> mensajes) {
+        List<CompletableFuture<Void>> aceptados = new ArrayList<>(mensajes.size());
+        for (Mensaje m : mensajes) {
+            simulador.recibir(routingKey, m.correlationId, m.cuerpo, alResponder);
+            aceptados.add(ACEPTADO);
+        }
+        return aceptados;
+    }
+
+    @Override
+    public String getDescripcion() {
+        return String.format("loopback %.1fms×%s / %.1fms×%s",
+            p.latenciaLp2Micros / 1000.0, trabajadores(p.trabajadoresLp2),
+            p.latenciaLp1Micros / 1000.0, trabajadores(p.trabajadoresLp1));
+    }
+
+    private static String trabajadores(int n) {
+        return n > 0 ? String.valueOf(n) : "∞";
+    }
+
+    @Override
+    public void close() {
+        if (simulador != null) {
+            simulador.close();
+        }
+    }
+}
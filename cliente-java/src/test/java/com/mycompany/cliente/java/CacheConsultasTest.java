@@ -0,0 +1,175 @@
+package com.mycompany.cliente.java;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+/**
+ * La caché contra un LP2 simulado dentro de la propia prueba, que responde
+ * como queryDNI de LP2 tras una pequeña latencia, o contra un origen cuyas
+ * respuestas controla la prueba.
+ */
+class CacheConsultasTest {
+
+    private static final String EN_BD2 = "12345678";
+    private static final String FUERA_DE_BD2 = "99999999";
+    private static final long MINUTO = TimeUnit.MINUTES.toNanos(1);
+
+    /** DNIs que el LP2 simulado tiene en BD2. */
+    private static final Set<String> BD2 = Set.of(EN_BD2, "20453629", "87654321", "11111111");
+    private static final Executor LATENCIA_LP2 = CompletableFuture.delayedExecutor(100, TimeUnit.MICROSECONDS);
+
+    private final Map<String, AtomicInteger> consultasPorDni = new ConcurrentHashMap<>();
+
+    /** Consulta al LP2 simulado, contando las llamadas que le llegan. */
+    private CompletableFuture<ResultadoConsulta> consultarLp2(String dni) {
+        consultasPorDni.computeIfAbsent(dni, k -> new AtomicInteger()).incrementAndGet();
+        return CompletableFuture.supplyAsync(() -> {
+            String json = BD2.contains(dni)
+                ? "{\"status\":\"success\",\"dni\":\"" + dni + "\",\"nombre\":\"Ana\",\"apellidos\":\"Pérez\"}"
+                : "{\"status\":\"not_found\",\"message\":\"DNI " + dni + " no encontrado en BD2\",\"dni\":\"" + dni + "\"}";
+            try {
+                return CodecMensajes.leerConsulta(json.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, LATENCIA_LP2);
+    }
+
+    private int consultas(String dni) {
+        AtomicInteger n = consultasPorDni.get(dni);
+        return n == null ? 0 : n.get();
+    }
+
+    private static ResultadoConsulta esperar(CompletableFuture<ResultadoConsulta> f) throws Exception {
+        return f.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void busquedasSimultaneasHacenUnaSolaConsulta() throws Exception {
+        int hilos = 16;
+        AtomicInteger llamadas = new AtomicInteger();
+        CompletableFuture<ResultadoConsulta> pendiente = new CompletableFuture<>();
+        CacheConsultas cache = new CacheConsultas(dni -> {
+            llamadas.incrementAndGet();
+            return pendiente;
+        }, 100, MINUTO, MINUTO);
+
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<CompletableFuture<ResultadoConsulta>>> lanzadas = new ArrayList<>();
+        for (int i = 0; i < hilos; i++) {
+            lanzadas.add(ejecutor.submit(() -> {
+                salida.await();
+                return cache.buscar(EN_BD2);
+            }));
+        }
+        salida.countDown();
+        List<CompletableFuture<ResultadoConsulta>> busquedas = new ArrayList<>();
+        for (Future<CompletableFuture<ResultadoConsulta>> f : lanzadas) {
+            busquedas.add(f.get(5, TimeUnit.SECONDS));
+        }
+        ejecutor.shutdown();
+
+        // Ninguna ha recibido respuesta todavía, así que todas comparten la misma consulta
+        assertEquals(1, llamadas.get());
+        assertEquals(hilos - 1, cache.getCompartidas());
+
+        pendiente.complete(esperar(consultarLp2(EN_BD2)));
+        for (CompletableFuture<ResultadoConsulta> f : busquedas) {
+            ResultadoConsulta r = esperar(f);
+            assertTrue(r.esEncontrado());
+            assertEquals(EN_BD2, r.getDni());
+        }
+        assertTrue(esperar(cache.buscar(EN_BD2)).esEncontrado());
+        assertEquals(1, llamadas.get());
+    }
+
+    @Test
+    void noEncontradoCaducaConSuPropioTtl() throws Exception {
+        CacheConsultas cache = new CacheConsultas(this::consultarLp2, 100, MINUTO,
+            TimeUnit.MILLISECONDS.toNanos(50));
+
+        assertTrue(esperar(cache.buscar(FUERA_DE_BD2)).esNoEncontrado());
+        assertTrue(esperar(cache.buscar(FUERA_DE_BD2)).esNoEncontrado());
+        assertTrue(esperar(cache.buscar(EN_BD2)).esEncontrado());
+        assertEquals(1, consultas(FUERA_DE_BD2));
+
+        Thread.sleep(100);
+
+        assertTrue(esperar(cache.buscar(FUERA_DE_BD2)).esNoEncontrado());
+        assertEquals(2, consultas(FUERA_DE_BD2));
+        // El positivo tiene el TTL largo y sigue en caché
+        assertTrue(esperar(cache.buscar(EN_BD2)).esEncontrado());
+        assertEquals(1, consultas(EN_BD2));
+    }
+
+    @Test
+    void expulsaLaMenosUsadaAlLlenarse() throws Exception {
+        CacheConsultas cache = new CacheConsultas(this::consultarLp2, 2, MINUTO, MINUTO);
+
+        esperar(cache.buscar("20453629"));
+        esperar(cache.buscar("87654321"));
+        esperar(cache.buscar("20453629"));
+        esperar(cache.buscar("11111111"));
+
+        assertEquals(2, cache.getTamano());
+        esperar(cache.buscar("20453629"));
+        esperar(cache.buscar("11111111"));
+        assertEquals(1, consultas("20453629"));
+        assertEquals(1, consultas("11111111"));
+
+        // 87654321 era la menos usada cuando entró la tercera
+        esperar(cache.buscar("87654321"));
+        assertEquals(2, consultas("87654321"));
+    }
+
+    @Test
+    void consultaFallidaNoQuedaEnCurso() throws Exception {
+        AtomicInteger llamadas = new AtomicInteger();
+        CompletableFuture<ResultadoConsulta> fallida = new CompletableFuture<>();
+        Function<String, CompletableFuture<ResultadoConsulta>> origen = dni ->
+            llamadas.incrementAndGet() == 1 ? fallida : consultarLp2(dni);
+        CacheConsultas cache = new CacheConsultas(origen, 100, MINUTO, MINUTO);
+
+        CompletableFuture<ResultadoConsulta> primera = cache.buscar(EN_BD2);
+        CompletableFuture<ResultadoConsulta> compartida = cache.buscar(EN_BD2);
+        assertEquals(1, llamadas.get());
+
+        fallida.completeExceptionally(new IOException("canal cerrado"));
+        ResultadoConsulta r = esperar(primera);
+        assertFalse(r.esCacheable());
+        assertEquals("canal cerrado", r.getMensaje());
+        assertFalse(esperar(compartida).esCacheable());
+
+        // Si el fallo siguiera en enCurso, esta búsqueda se uniría a él en lugar de consultar
+        assertTrue(esperar(cache.buscar(EN_BD2)).esEncontrado());
+        assertEquals(2, llamadas.get());
+        assertEquals(1, cache.getTamano());
+    }
+
+    @Test
+    void origenQueLanzaTambienSaleDeEnCurso() throws Exception {
+        AtomicInteger llamadas = new AtomicInteger();
+        CacheConsultas cache = new CacheConsultas(dni -> {
+            if (llamadas.incrementAndGet() == 1) {
+                throw new IllegalStateException("sin conexión");
+            }
+            return consultarLp2(dni);
+        }, 100, MINUTO, MINUTO);
+
+        assertFalse(esperar(cache.buscar(EN_BD2)).esCacheable());
+        assertTrue(esperar(cache.buscar(EN_BD2)).esEncontrado());
+        assertEquals(2, llamadas.get());
+    }
+}
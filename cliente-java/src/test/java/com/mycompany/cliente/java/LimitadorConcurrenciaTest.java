@@ -0,0 +1,52 @@
+package com.mycompany.cliente.java;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Retroceso del límite antes de que haya ningún éxito: una racha de fallos
+ * no debe reducirlo más de una vez por ventana.
+ */
+class LimitadorConcurrenciaTest {
+
+    private static LimitadorConcurrencia limitador() {
+        return new LimitadorConcurrencia(LimitadorConcurrencia.Modo.FALLAR, 20, 1, 1000, 0, 2.0, 0.5, Runnable::run);
+    }
+
+    /** Adquiere n permisos y los devuelve todos como fallos con el mismo RTT. */
+    private static void fallar(LimitadorConcurrencia l, int n, long rttNanos) {
+        for (int i = 0; i < n; i++) {
+            assertFalse(l.adquirir().isCompletedExceptionally());
+        }
+        for (int i = 0; i < n; i++) {
+            l.liberar(rttNanos, true);
+        }
+    }
+
+    @Test
+    void rachaDeErroresLocalesEnFrioReduceUnaSolaVez() {
+        LimitadorConcurrencia l = limitador();
+        fallar(l, 20, 0);
+        assertEquals(10, l.getLimite());
+        fallar(l, 10, 0);
+        assertEquals(10, l.getLimite());
+    }
+
+    @Test
+    void rachaDeTimeoutsEnFrioReduceUnaSolaVez() {
+        LimitadorConcurrencia l = limitador();
+        fallar(l, 20, TimeUnit.SECONDS.toNanos(30));
+        assertEquals(10, l.getLimite());
+    }
+
+    @Test
+    void pasadaLaVentanaVuelveAReducir() throws InterruptedException {
+        LimitadorConcurrencia l = limitador();
+        fallar(l, 20, 0);
+        Thread.sleep(TimeUnit.NANOSECONDS.toMillis(LimitadorConcurrencia.RTT_DESCONOCIDO_NANOS) + 50);
+        fallar(l, 10, 0);
+        assertEquals(5, l.getLimite());
+    }
+}
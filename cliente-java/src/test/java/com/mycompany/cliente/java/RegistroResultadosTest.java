@@ -0,0 +1,71 @@
+package com.mycompany.cliente.java;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * La línea temporal del análisis debe cubrir hasta la respuesta más
+ * tardía, tanto en un archivo cerrado como en uno que quedó a medias.
+ */
+class RegistroResultadosTest {
+
+    private static final long INICIO = 1_000_000_000L;
+    private static final ResultadoRegistro EXITO =
+        ResultadoRegistro.desdeBytes("{\"status\":\"success\"}".getBytes(StandardCharsets.UTF_8));
+
+    @TempDir
+    Path directorio;
+
+    /** Tres respuestas a 0,5 s, 2,5 s y 1,5 s: la última anotada no es la más tardía. */
+    private static void anotarDesordenadas(RegistroResultados registro) {
+        anotar(registro, 0, 100, 500);
+        anotar(registro, 1, 1_100, 2_500);
+        anotar(registro, 2, 1_200, 1_500);
+    }
+
+    private static void anotar(RegistroResultados registro, long id, long enviadoMillis, long completadoMillis) {
+        registro.anotar(id, INICIO + TimeUnit.MILLISECONDS.toNanos(enviadoMillis),
+            INICIO + TimeUnit.MILLISECONDS.toNanos(completadoMillis), EXITO, null, true);
+    }
+
+    private static void comprobarLineaTemporal(RegistroResultados.Analisis a) {
+        assertEquals(3, a.registros);
+        assertEquals(3, a.intervalos.length);
+        assertEquals(TimeUnit.SECONDS.toNanos(1), a.anchoIntervaloNanos);
+        for (RegistroResultados.Intervalo intervalo : a.intervalos) {
+            assertEquals(1, intervalo.completadas);
+        }
+        assertEquals(1, a.intervalos[0].enviadas);
+        assertEquals(2, a.intervalos[1].enviadas);
+    }
+
+    @Test
+    void archivoSinCerrarUsaLosRegistrosEscritos() throws Exception {
+        Path ruta = directorio.resolve("a-medias.resultados");
+        RegistroResultados registro = new RegistroResultados(ruta, INICIO);
+        try {
+            anotarDesordenadas(registro);
+            RegistroResultados.Analisis a = RegistroResultados.analizar(ruta, 100);
+            assertFalse(a.completo);
+            comprobarLineaTemporal(a);
+        } finally {
+            registro.close();
+        }
+    }
+
+    @Test
+    void archivoCerradoLlegaHastaLaRespuestaMasTardia() throws Exception {
+        Path ruta = directorio.resolve("cerrado.resultados");
+        try (RegistroResultados registro = new RegistroResultados(ruta, INICIO)) {
+            anotarDesordenadas(registro);
+        }
+        RegistroResultados.Analisis a = RegistroResultados.analizar(ruta, 100);
+        assertTrue(a.completo);
+        comprobarLineaTemporal(a);
+    }
+}
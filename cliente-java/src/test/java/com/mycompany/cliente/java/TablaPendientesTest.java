@@ -0,0 +1,79 @@
+package com.mycompany.cliente.java;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.jupiter.api.Test;
+
+/**
+ * La misma forma de contención que PendientesBenchmark (cuatro hilos dando
+ * de alta y completando a la vez) más el hilo de barrido, con un timeout
+ * nulo para que el cursor vaya pegado a la última secuencia y se cruce con
+ * las altas en curso.
+ */
+class TablaPendientesTest {
+
+    private static final int HILOS = 4;
+    private static final int ALTAS_POR_HILO = 200_000;
+
+    @Test
+    void ningunaPeticionEscapaAlBarrido() throws Exception {
+        TablaPendientes pendientes = new TablaPendientes(TablaPendientes.ModoIds.COMPACTO, 1024, 0);
+        LongAdder expiradas = new LongAdder();
+        AtomicBoolean fin = new AtomicBoolean();
+
+        Thread barrido = new Thread(() -> {
+            while (!fin.get()) {
+                pendientes.barrerExpiradas(f -> {
+                    expiradas.increment();
+                    f.complete(ResultadoRegistro.TIMEOUT);
+                });
+            }
+        });
+        barrido.start();
+
+        ExecutorService hilos = Executors.newFixedThreadPool(HILOS);
+        List<Future<List<CompletableFuture<ResultadoRegistro>>>> abandonadas = new ArrayList<>();
+        for (int h = 0; h < HILOS; h++) {
+            abandonadas.add(hilos.submit(() -> {
+                List<CompletableFuture<ResultadoRegistro>> sinRespuesta = new ArrayList<>();
+                for (int i = 0; i < ALTAS_POR_HILO; i++) {
+                    CompletableFuture<ResultadoRegistro> future = new CompletableFuture<>();
+                    String id = pendientes.registrar(future);
+                    if ((i & 1) == 0) {
+                        // La mitad recibe respuesta; si el barrido ya la expiró, completar devuelve null
+                        CompletableFuture<ResultadoRegistro> encontrada = pendientes.completar(id);
+                        if (encontrada != null) {
+                            assertSame(future, encontrada);
+                            encontrada.complete(ResultadoRegistro.error("respondida"));
+                        }
+                    } else {
+                        sinRespuesta.add(future);
+                    }
+                }
+                return sinRespuesta;
+            }));
+        }
+        List<CompletableFuture<ResultadoRegistro>> sinRespuesta = new ArrayList<>();
+        for (Future<List<CompletableFuture<ResultadoRegistro>>> f : abandonadas) {
+            sinRespuesta.addAll(f.get(2, TimeUnit.MINUTES));
+        }
+        hilos.shutdown();
+        fin.set(true);
+        barrido.join();
+
+        pendientes.barrerExpiradas(f -> {
+            expiradas.increment();
+            f.complete(ResultadoRegistro.TIMEOUT);
+        });
+
+        assertEquals(0, pendientes.getEnVuelo(), "peticiones que quedaron en la tabla");
+        long olvidadas = sinRespuesta.stream().filter(f -> !f.isDone()).count();
+        assertEquals(0, olvidadas, "peticiones sin respuesta que nunca expiraron");
+        assertTrue(expiradas.sum() >= sinRespuesta.size());
+    }
+}
@@ -176,6 +176,8 @@ class LP2Service {
                 await this.channel.assertExchange('validation', 'direct', { durable: true });
                 await this.channel.assertQueue('validate_dni', { durable: true });
                 await this.channel.bindQueue('validate_dni', 'validation', 'check');
+                await this.channel.assertQueue('query_dni', { durable: true });
+                await this.channel.bindQueue('query_dni', 'validation', 'query');
                 
                 console.log('✓ [LP2] Conectado a RabbitMQ y canal creado');
                 return; // Salir del bucle si la conexión es exitosa
@@ -285,6 +287,33 @@ class LP2Service {
         }
     }
 
+    async queryDNI(msg) {
+        try {
+            const data = JSON.parse(msg.content.toString());
+            const [rows] = await this.connection.execute(
+                'SELECT dni, nombre, apellidos, lugar_nacimiento, direccion FROM dni_registro WHERE dni = ?',
+                [data.dni]
+            );
+            
+            if (rows.length === 0) {
+                return {
+                    status: 'not_found',
+                    message: `DNI ${data.dni} no encontrado en BD2`,
+                    dni: data.dni
+                };
+            }
+            
+            return { status: 'success', ...rows[0] };
+            
+        } catch (error) {
+            console.error('[LP2] Error en consulta:', error);
+            return {
+                status: 'error',
+                message: error.message
+            };
+        }
+    }
+
     async startConsuming() {
         try {
             // Verificar que el canal existe antes de usarlo
@@ -312,7 +341,21 @@ class LP2Service {
                 }
             });
             
+            // Consultas de sólo lectura: responden siempre al cliente
+            await this.channel.consume('query_dni', async (msg) => {
+                if (msg) {
+                    const response = await this.queryDNI(msg);
+                    this.channel.sendToQueue(
+                        msg.properties.replyTo,
+                        Buffer.from(JSON.stringify(response)),
+                        { correlationId: msg.properties.correlationId }
+                    );
+                    this.channel.ack(msg);
+                }
+            });
+            
             console.log('[LP2] 🎧 Escuchando mensajes en cola validate_dni...');
+            console.log('[LP2] 🎧 Escuchando consultas en cola query_dni...');
             console.log('[LP2] 💚 Servicio listo y operativo');
             
         } catch (error) {